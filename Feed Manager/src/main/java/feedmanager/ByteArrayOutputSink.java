@@ -0,0 +1,45 @@
+package feedmanager;
+
+import java.nio.ByteBuffer;
+
+// Sink that keeps its output in memory, growing as needed, so it can be copied out later
+public class ByteArrayOutputSink extends ByteBufferOutputSink {
+    private final int initialSize;
+
+    public ByteArrayOutputSink(int initialSize) {
+        super(ByteBuffer.allocate(initialSize));
+        this.initialSize = initialSize;
+    }
+
+    // Double the buffer, keeping what was written
+    @Override
+    protected void drain() {
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    // The bytes written so far are array()[0, length())
+    public byte[] array() {
+        return buffer.array();
+    }
+
+    public int length() {
+        return buffer.position();
+    }
+
+    // Drop the output written after the first length bytes
+    public void truncate(int length) {
+        buffer.position(length);
+    }
+
+    // Forget the output, and give back memory taken by an unusually large one
+    public void reset() {
+        if (buffer.capacity() > initialSize * 64) {
+            buffer = ByteBuffer.allocate(initialSize);
+        } else {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package feedmanager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public abstract class ByteBufferOutputSink implements OutputSink {
+    private static final Charset CHARSET = Charset.defaultCharset(); // Same encoding FileWriter used
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+    private static final boolean ASCII_COMPATIBLE = isAsciiCompatible(); // ASCII chars can be copied as bytes
+
+    protected ByteBuffer buffer; // Current buffer, subclasses empty or replace it in drain
+    private final byte[] digits = new byte[11]; // Scratch space for formatting an int
+
+    protected ByteBufferOutputSink(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    // Make room in the buffer, called when it is full
+    protected abstract void drain();
+
+    // Check once that the charset encodes the 128 ASCII chars as themselves
+    private static boolean isAsciiCompatible() {
+        char[] ascii = new char[128];
+        byte[] expected = new byte[128];
+        for (int i = 0; i < 128; i++) {
+            ascii[i] = (char) i;
+            expected[i] = (byte) i;
+        }
+        return Arrays.equals(new String(ascii).getBytes(CHARSET), expected);
+    }
+
+    @Override
+    public OutputSink append(String text) {
+        int length = text.length();
+        if (ASCII_COMPATIBLE) {
+            // Copy char by char, only text with non-ASCII chars is encoded the slow way
+            int i = 0;
+            while (i < length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                buffer.put((byte) c);
+                i++;
+            }
+            if (i == length) {
+                return this;
+            }
+            return put(text.substring(i).getBytes(CHARSET));
+        }
+        return put(text.getBytes(CHARSET));
+    }
+
+    @Override
+    public OutputSink append(char c) {
+        if (ASCII_COMPATIBLE && c < 0x80) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+            return this;
+        }
+        return append(String.valueOf(c));
+    }
+
+    @Override
+    public OutputSink append(int value) {
+        if (!ASCII_COMPATIBLE) {
+            return append(Integer.toString(value));
+        }
+        // Fill the digits from the right, negated so Integer.MIN_VALUE needs no special case
+        int position = digits.length;
+        int n = value < 0 ? value : -value;
+        do {
+            digits[--position] = (byte) ('0' - n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        return put(digits, position, digits.length - position);
+    }
+
+    @Override
+    public OutputSink newLine() {
+        return put(LINE_SEPARATOR);
+    }
+
+    private OutputSink put(byte[] bytes) {
+        return put(bytes, 0, bytes.length);
+    }
+
+    // Append bytes that are already encoded, such as another sink's output
+    public OutputSink put(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+        return this;
+    }
+}
@@ -0,0 +1,48 @@
+package feedmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class ChannelOutputSink extends ByteBufferOutputSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20; // Bytes collected before each write to the channel
+
+    private final FileChannel channel;
+
+    public ChannelOutputSink(String path) throws IOException {
+        super(ByteBuffer.allocateDirect(BUFFER_SIZE)); // Reused for the whole run, flushed when full
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    protected void drain() {
+        flush();
+    }
+
+    // Write everything collected so far to the file
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
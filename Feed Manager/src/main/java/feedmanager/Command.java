@@ -0,0 +1,152 @@
+package feedmanager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+public class Command {
+    // Command types
+    public static final int INVALID = 0;
+    public static final int CREATE_USER = 1;
+    public static final int FOLLOW_USER = 2;
+    public static final int UNFOLLOW_USER = 3;
+    public static final int CREATE_POST = 4;
+    public static final int SEE_POST = 5;
+    public static final int SEE_ALL_POSTS = 6;
+    public static final int TOGGLE_LIKE = 7;
+    public static final int GENERATE_FEED = 8;
+    public static final int SCROLL_THROUGH_FEED = 9;
+    public static final int SORT_POSTS = 10;
+    public static final int TRENDING = 11;
+
+    // Keyword of each command type, indexed by type
+    static final String[] NAMES = {
+            null, "create_user", "follow_user", "unfollow_user", "create_post", "see_post",
+            "see_all_posts_from_user", "toggle_like", "generate_feed", "scroll_through_feed",
+            "sort_posts", "trending"
+    };
+
+    private static final Charset CHARSET = Charset.defaultCharset(); // Same decoding FileReader used
+
+    int type; // One of the command types above
+    ByteBuffer buffer; // Buffer holding the line, tokens point into it
+    int[] tokenStart = new int[8]; // Offset of each token in the buffer
+    int[] tokenLength = new int[8]; // Length of each token in bytes
+    int tokenCount; // Number of tokens, the keyword included
+
+    // Reset the command to an empty line in the given buffer
+    void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.type = INVALID;
+        this.tokenCount = 0;
+    }
+
+    void addToken(int start, int length) {
+        if (tokenCount == tokenStart.length) {
+            tokenStart = Arrays.copyOf(tokenStart, tokenCount * 2);
+            tokenLength = Arrays.copyOf(tokenLength, tokenCount * 2);
+        }
+        tokenStart[tokenCount] = start;
+        tokenLength[tokenCount] = length;
+        tokenCount++;
+    }
+
+    // Keyword of a command type, "invalid" for INVALID
+    public static String nameOf(int type) {
+        return type == INVALID ? "invalid" : NAMES[type];
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    // Number of tokens, the keyword included
+    public int size() {
+        return tokenCount;
+    }
+
+    private void checkToken(int i) {
+        if (i >= tokenCount) {
+            throw new ArrayIndexOutOfBoundsException("Index " + i + " out of bounds for length " + tokenCount);
+        }
+    }
+
+    // Decode a token into a String, only needed for new IDs, content and error messages
+    public String token(int i) {
+        checkToken(i);
+        byte[] bytes = new byte[tokenLength[i]];
+        buffer.get(tokenStart[i], bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    // Parse a token as an int in place, with the same rules as Integer.parseInt
+    public int intToken(int i) {
+        checkToken(i);
+        int position = tokenStart[i];
+        int end = position + tokenLength[i];
+        if (position == end) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        boolean negative = false;
+        byte first = buffer.get(position);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++position == end) {
+                throw new NumberFormatException("For input string: \"" + token(i) + "\"");
+            }
+        }
+        // Accumulate negatively so Integer.MIN_VALUE parses without overflow
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        while (position < end) {
+            int digit = buffer.get(position++) - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) {
+                throw new NumberFormatException("For input string: \"" + token(i) + "\"");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + token(i) + "\"");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    // Look up a user ID token without turning it into a String
+    public int userIndex(int i, Manager manager) {
+        checkToken(i);
+        return manager.userIndex(buffer, tokenStart[i], tokenLength[i]);
+    }
+
+    // Look up a post ID token without turning it into a String
+    public int postIndex(int i, Manager manager) {
+        checkToken(i);
+        return manager.postIndex(buffer, tokenStart[i], tokenLength[i]);
+    }
+
+    // Look up an ID token in an interner without turning it into a String
+    public int indexOf(int i, IdInterner ids) {
+        checkToken(i);
+        return ids.indexOf(buffer, tokenStart[i], tokenLength[i]);
+    }
+
+    // Find the command type of the keyword token, without creating a String
+    static int classify(ByteBuffer buffer, int start, int length) {
+        for (int type = 1; type < NAMES.length; type++) {
+            String name = NAMES[type];
+            if (name.length() == length && matches(name, buffer, start)) {
+                return type;
+            }
+        }
+        return INVALID;
+    }
+
+    private static boolean matches(String name, ByteBuffer buffer, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (buffer.get(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
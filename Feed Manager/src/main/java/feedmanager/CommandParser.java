@@ -0,0 +1,103 @@
+package feedmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class CommandParser implements Closeable {
+    private static final long WINDOW_SIZE = 1L << 30; // Bytes mapped at a time, files may be larger
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window; // Currently mapped part of the file
+    private long windowStart; // File offset of the window
+    private int position; // Next unread byte in the window
+
+    public CommandParser(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        fileSize = channel.size();
+        map(0);
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+        position = 0;
+    }
+
+    // Read the next line into the command, returns false at the end of the file
+    public boolean next(Command command) throws IOException {
+        if (windowStart + position >= fileSize) {
+            return false;
+        }
+        int end = findLineEnd();
+        if (end < 0) {
+            // The line crosses the end of the window, map again from the start of the line
+            map(windowStart + position);
+            end = findLineEnd();
+            if (end < 0) {
+                throw new IOException("Line longer than " + WINDOW_SIZE + " bytes at offset " + windowStart);
+            }
+        }
+        tokenize(window, position, end, command);
+
+        // Skip the line terminator: \n, \r or \r\n, as BufferedReader.readLine does
+        position = end;
+        if (position < window.limit()) {
+            if (window.get(position++) == '\r' && position < window.limit() && window.get(position) == '\n') {
+                position++;
+            }
+        }
+        return true;
+    }
+
+    // Offset of the terminator of the current line, or -1 if the window ends first
+    private int findLineEnd() {
+        int limit = window.limit();
+        boolean lastWindow = windowStart + limit >= fileSize;
+        for (int i = position; i < limit; i++) {
+            byte b = window.get(i);
+            if (b == '\n') {
+                return i;
+            }
+            if (b == '\r') {
+                // A \r\n pair must not be split across two windows
+                return i + 1 < limit || lastWindow ? i : -1;
+            }
+        }
+        return lastWindow ? limit : -1;
+    }
+
+    // Split the line [start, end) of a buffer on single spaces, with the same result as String.split(" ")
+    static void tokenize(ByteBuffer buffer, int start, int end, Command command) {
+        command.reset(buffer);
+        int tokenStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ' ') {
+                command.addToken(tokenStart, i - tokenStart);
+                tokenStart = i + 1;
+            }
+        }
+        if (command.tokenCount == 0) {
+            command.addToken(start, end - start); // No separator, the whole line is one token
+        } else {
+            command.addToken(tokenStart, end - tokenStart);
+            // Trailing empty tokens are dropped
+            while (command.tokenCount > 0 && command.tokenLength[command.tokenCount - 1] == 0) {
+                command.tokenCount--;
+            }
+        }
+        if (command.tokenCount > 0) {
+            command.type = Command.classify(buffer, command.tokenStart[0], command.tokenLength[0]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,702 @@
+package feedmanager;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CompressedBitmap {
+    private static final int ARRAY_MAX = 4096; // Array containers above this size become bitmaps
+    private static final int BITMAP_WORDS = 1024; // 65536 bits per bitmap container
+    private static final AtomicLong resizes = new AtomicLong(); // Array growths of all instances, for Metrics
+
+    private char[] keys; // High 16 bits of each chunk, sorted
+    private Container[] containers; // Low 16 bits of each chunk, same order as keys
+    private int chunkCount; // Number of non-empty chunks
+    private int cardinality; // Number of elements
+    private int modCount; // Structural changes, for fail-fast iteration
+
+    public CompressedBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+        chunkCount = 0;
+        cardinality = 0;
+    }
+
+    public boolean add(int element) {
+        if (element < 0) throw new IllegalArgumentException("negative value");
+
+        char high = (char) (element >>> 16);
+        int chunk = findChunk(high);
+        if (chunk < 0) {
+            chunk = -chunk - 1;
+            insertChunk(chunk, high, new ArrayContainer());
+        }
+        Container container = containers[chunk];
+        int before = container.cardinality;
+        containers[chunk] = container.add((char) element);
+        if (containers[chunk].cardinality == before) {
+            return false; // Element already exists
+        }
+        cardinality++;
+        modCount++;
+        return true;
+    }
+
+    public boolean remove(int element) {
+        if (element < 0) return false;
+
+        int chunk = findChunk((char) (element >>> 16));
+        if (chunk < 0) {
+            return false;
+        }
+        Container container = containers[chunk];
+        int before = container.cardinality;
+        container = container.remove((char) element);
+        if (container.cardinality == before) {
+            return false; // Element not found
+        }
+        cardinality--;
+        modCount++;
+        if (container.cardinality == 0) {
+            removeChunk(chunk);
+        } else {
+            containers[chunk] = container;
+        }
+        return true;
+    }
+
+    public boolean contains(int element) {
+        if (element < 0) return false;
+
+        int chunk = findChunk((char) (element >>> 16));
+        return chunk >= 0 && containers[chunk].contains((char) element);
+    }
+
+    public int size() {
+        return cardinality;
+    }
+
+    // Number of times any instance has grown its chunk table or a container
+    public static long resizeCount() {
+        return resizes.get();
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, chunkCount, null);
+        chunkCount = 0;
+        cardinality = 0;
+        modCount++;
+    }
+
+    // Add every element of other to this bitmap, chunk by chunk
+    public void or(CompressedBitmap other) {
+        int i = 0;
+        for (int j = 0; j < other.chunkCount; j++) {
+            char key = other.keys[j];
+            while (i < chunkCount && keys[i] < key) {
+                i++;
+            }
+            if (i < chunkCount && keys[i] == key) {
+                int before = containers[i].cardinality;
+                containers[i] = or(containers[i], other.containers[j]);
+                cardinality += containers[i].cardinality - before;
+            } else {
+                // Containers are never shared between bitmaps, so copy the other one
+                insertChunk(i, key, other.containers[j].copy());
+                cardinality += containers[i].cardinality;
+            }
+            i++;
+        }
+        modCount++;
+    }
+
+    // Remove every element of other from this bitmap, chunk by chunk
+    public void andNot(CompressedBitmap other) {
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i];
+                int before = container.cardinality;
+                container = andNot(container, other.containers[j]);
+                cardinality -= before - container.cardinality;
+                if (container.cardinality == 0) {
+                    removeChunk(i);
+                } else {
+                    containers[i++] = container;
+                }
+                j++;
+            }
+        }
+        modCount++;
+    }
+
+    // Switch containers to run encoding wherever that is smaller
+    public void runOptimize() {
+        for (int i = 0; i < chunkCount; i++) {
+            containers[i] = containers[i].runOptimize();
+        }
+    }
+
+    // Approximate number of bytes used by the containers
+    public long sizeInBytes() {
+        long bytes = 3L * keys.length + 8L * containers.length;
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    public IntIterator iterator() {
+        return new CompressedBitmapIterator();
+    }
+
+    // Binary search for a chunk, returns -(insertion point) - 1 when absent
+    private int findChunk(char key) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else if (keys[mid] > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertChunk(int index, char key, Container container) {
+        if (chunkCount == keys.length) {
+            resizes.incrementAndGet();
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            containers = Arrays.copyOf(containers, chunkCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(containers, index, containers, index + 1, chunkCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        chunkCount++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, chunkCount - index - 1);
+        containers[--chunkCount] = null;
+    }
+
+    // Union of two containers, a may be changed or replaced, b is never changed
+    private static Container or(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer
+                && a.cardinality + b.cardinality <= ARRAY_MAX) {
+            return ((ArrayContainer) a).merge((ArrayContainer) b);
+        }
+        BitmapContainer bitmap = a instanceof BitmapContainer ? (BitmapContainer) a : a.toBitmap();
+        bitmap.orWith(b);
+        return bitmap.shrink();
+    }
+
+    // Difference of two containers, a may be changed or replaced, b is never changed
+    private static Container andNot(Container a, Container b) {
+        if (a instanceof RunContainer) {
+            a = a.cardinality <= ARRAY_MAX ? a.toArray() : a.toBitmap();
+        }
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).retainMissingFrom(b);
+        }
+        BitmapContainer bitmap = (BitmapContainer) a;
+        bitmap.andNotWith(b);
+        return bitmap.shrink();
+    }
+
+    // Elements of one 64K chunk, stored as their low 16 bits
+    private abstract static class Container {
+        int cardinality; // Number of elements in the container
+
+        abstract boolean contains(char value);
+
+        // Add a value, may return a different container type
+        abstract Container add(char value);
+
+        // Remove a value, may return a different container type
+        abstract Container remove(char value);
+
+        // Smallest value >= from, or -1 if there is none
+        abstract int nextValue(int from);
+
+        abstract Container copy();
+
+        abstract long sizeInBytes();
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer(cardinality);
+            for (int value = nextValue(0); value >= 0; value = nextValue(value + 1)) {
+                array.values[array.cardinality++] = (char) value;
+            }
+            return array;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int value = nextValue(0); value >= 0; value = nextValue(value + 1)) {
+                bitmap.words[value >>> 6] |= 1L << value;
+            }
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+
+        // Number of runs of consecutive values
+        int countRuns() {
+            int runs = 0;
+            int previous = -2;
+            for (int value = nextValue(0); value >= 0; value = nextValue(value + 1)) {
+                if (value != previous + 1) {
+                    runs++;
+                }
+                previous = value;
+            }
+            return runs;
+        }
+
+        // Convert to run encoding when that is smaller
+        Container runOptimize() {
+            int runs = countRuns();
+            if (RunContainer.bytesFor(runs) >= sizeInBytes()) {
+                return this;
+            }
+            RunContainer run = new RunContainer(runs);
+            for (int value = nextValue(0); value >= 0; value = nextValue(value + 1)) {
+                run.append((char) value);
+            }
+            return run;
+        }
+    }
+
+    // Sorted array of values, for sparse chunks
+    private static final class ArrayContainer extends Container {
+        char[] values;
+
+        ArrayContainer() {
+            this(4);
+        }
+
+        ArrayContainer(int capacity) {
+            values = new char[Math.max(capacity, 1)];
+        }
+
+        private int search(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value);
+        }
+
+        @Override
+        boolean contains(char value) {
+            return search(value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = search(value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                resizes.incrementAndGet();
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = search(value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int index = search((char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cardinality ? values[index] : -1;
+        }
+
+        @Override
+        ArrayContainer toArray() {
+            return this;
+        }
+
+        // Sorted merge of two small arrays
+        ArrayContainer merge(ArrayContainer other) {
+            ArrayContainer merged = new ArrayContainer(cardinality + other.cardinality);
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < other.cardinality) {
+                char next;
+                if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                    next = values[i++];
+                } else if (i == cardinality || other.values[j] < values[i]) {
+                    next = other.values[j++];
+                } else {
+                    next = values[i++];
+                    j++;
+                }
+                merged.values[merged.cardinality++] = next;
+            }
+            return merged;
+        }
+
+        // Keep only the values other does not contain
+        ArrayContainer retainMissingFrom(Container other) {
+            int kept = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    values[kept++] = values[i];
+                }
+            }
+            cardinality = kept;
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer(cardinality);
+            System.arraycopy(values, 0, copy.values, 0, cardinality);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 2L * values.length;
+        }
+    }
+
+    // One bit per possible value, for dense chunks
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[BITMAP_WORDS];
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long word = words[value >>> 6];
+            long updated = word | (1L << value);
+            if (updated != word) {
+                words[value >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long word = words[value >>> 6];
+            long updated = word & ~(1L << value);
+            if (updated != word) {
+                words[value >>> 6] = updated;
+                cardinality--;
+            }
+            return shrink();
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int index = from >>> 6;
+            long word = words[index] & (-1L << from);
+            while (word == 0) {
+                if (++index == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return (index << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return (BitmapContainer) copy();
+        }
+
+        @Override
+        int countRuns() {
+            int runs = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                long next = i + 1 < BITMAP_WORDS ? words[i + 1] : 0;
+                // A run ends wherever a set bit is followed by a clear bit
+                runs += Long.bitCount(word & ~(word << 1));
+                if ((word >>> 63) != 0 && (next & 1) != 0) {
+                    runs--; // The run continues into the next word
+                }
+            }
+            return runs;
+        }
+
+        void orWith(Container other) {
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] |= otherWords[i];
+                }
+            } else {
+                for (int value = other.nextValue(0); value >= 0; value = other.nextValue(value + 1)) {
+                    words[value >>> 6] |= 1L << value;
+                }
+            }
+            recount();
+        }
+
+        void andNotWith(Container other) {
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] &= ~otherWords[i];
+                }
+            } else {
+                for (int value = other.nextValue(0); value >= 0; value = other.nextValue(value + 1)) {
+                    words[value >>> 6] &= ~(1L << value);
+                }
+            }
+            recount();
+        }
+
+        private void recount() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            cardinality = count;
+        }
+
+        // Fall back to an array once the chunk is sparse again
+        Container shrink() {
+            return cardinality <= ARRAY_MAX ? super.toArray() : this;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 8L * BITMAP_WORDS;
+        }
+    }
+
+    // Sorted (start, length - 1) pairs, for chunks made of long runs
+    private static final class RunContainer extends Container {
+        char[] runs; // runs[2 * i] is the start, runs[2 * i + 1] the length minus one
+        int runCount;
+
+        RunContainer(int capacity) {
+            runs = new char[2 * Math.max(capacity, 1)];
+        }
+
+        static long bytesFor(int runCount) {
+            return 16 + 4L * runCount;
+        }
+
+        private int start(int run) {
+            return runs[2 * run];
+        }
+
+        private int end(int run) {
+            return runs[2 * run] + runs[2 * run + 1];
+        }
+
+        // Index of the last run starting at or before value, or -1
+        private int findRun(int value) {
+            int low = 0;
+            int high = runCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (start(mid) <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        // Append a value larger than every value already stored
+        void append(char value) {
+            if (runCount > 0 && end(runCount - 1) + 1 == value) {
+                runs[2 * runCount - 1]++;
+            } else {
+                insertRun(runCount, value, 0);
+            }
+            cardinality++;
+        }
+
+        private void insertRun(int index, int start, int lengthMinusOne) {
+            if (2 * runCount == runs.length) {
+                resizes.incrementAndGet();
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            System.arraycopy(runs, 2 * index, runs, 2 * index + 2, 2 * (runCount - index));
+            runs[2 * index] = (char) start;
+            runs[2 * index + 1] = (char) lengthMinusOne;
+            runCount++;
+        }
+
+        private void removeRun(int index) {
+            System.arraycopy(runs, 2 * index + 2, runs, 2 * index, 2 * (runCount - index - 1));
+            runCount--;
+        }
+
+        @Override
+        boolean contains(char value) {
+            int run = findRun(value);
+            return run >= 0 && value <= end(run);
+        }
+
+        @Override
+        Container add(char value) {
+            int run = findRun(value);
+            if (run >= 0 && value <= end(run)) {
+                return this; // Already inside a run
+            }
+            boolean extendsPrevious = run >= 0 && end(run) + 1 == value;
+            boolean extendsNext = run + 1 < runCount && start(run + 1) == value + 1;
+            if (extendsPrevious && extendsNext) {
+                // The value closes the gap between two runs
+                runs[2 * run + 1] = (char) (end(run + 1) - start(run));
+                removeRun(run + 1);
+            } else if (extendsPrevious) {
+                runs[2 * run + 1]++;
+            } else if (extendsNext) {
+                runs[2 * run + 2] = value;
+                runs[2 * run + 3]++;
+            } else {
+                insertRun(run + 1, value, 0);
+            }
+            cardinality++;
+            return bytesFor(runCount) > Math.min(16 + 2L * cardinality, 16 + 8L * BITMAP_WORDS)
+                    ? (cardinality <= ARRAY_MAX ? toArray() : toBitmap()) : this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int run = findRun(value);
+            if (run < 0 || value > end(run)) {
+                return this; // Not inside any run
+            }
+            int start = start(run);
+            int end = end(run);
+            if (start == end) {
+                removeRun(run);
+            } else if (value == start) {
+                runs[2 * run] = (char) (start + 1);
+                runs[2 * run + 1]--;
+            } else if (value == end) {
+                runs[2 * run + 1]--;
+            } else {
+                // Split the run around the removed value
+                runs[2 * run + 1] = (char) (value - start - 1);
+                insertRun(run + 1, value + 1, end - value - 1);
+            }
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int run = findRun(from);
+            if (run >= 0 && from <= end(run)) {
+                return from;
+            }
+            return run + 1 < runCount ? start(run + 1) : -1;
+        }
+
+        @Override
+        int countRuns() {
+            return runCount;
+        }
+
+        @Override
+        Container runOptimize() {
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            RunContainer copy = new RunContainer(runCount);
+            System.arraycopy(runs, 0, copy.runs, 0, 2 * runCount);
+            copy.runCount = runCount;
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + 2L * runs.length;
+        }
+    }
+
+    // Inner class for iterator, walks the chunks in ascending order
+    private class CompressedBitmapIterator implements IntIterator {
+        private int chunk = 0;
+        private int next = chunkCount > 0 ? containers[0].nextValue(0) : -1;
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return next >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next < 0) {
+                throw new NoSuchElementException("No more elements");
+            }
+            int element = (keys[chunk] << 16) | next;
+            next = containers[chunk].nextValue(next + 1);
+            if (next < 0 && ++chunk < chunkCount) {
+                next = containers[chunk].nextValue(0);
+            }
+            return element;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package feedmanager;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Manager that several command streams can share.
+// Locks are always taken in this order, so no two commands can deadlock:
+//   1. registry: the ID interners, the user/post arrays and the post ID labels. Read for
+//      every command, write only for create_user and create_post.
+//   2. user stripes, in ascending stripe order. A stripe guards the state of its users
+//      and of the posts they wrote (whoLiked, whoSee, like counts).
+//   3. trending: the global trending heap. Like counts only change while it is held,
+//      so trending can read them with this lock alone.
+// Feeds are read at query time only, so the push feed mode is not supported.
+// generate_feed and sort_posts take none of these locks (beyond the ID lookups) and never wait
+// for a writer. Writers change sort keys only under the registry write lock or trending, one at
+// a time, and publish them as versions of an epoch before letting go (see VersionedPostStore);
+// a read pins the last published epoch and ranks every post by its key as of then. The reader's
+// own followed, seen and liked sets come from a FeedView, which a writer to them drops and the
+// next read copies again under the user's stripe. Such a read takes the user and post arrays
+// from volatile fields that the creating commands set once the new entry is in, and reads them
+// once, so it never sees a grown array without its entries.
+public class ConcurrentManager extends Manager {
+    private static final int STRIPES = 64; // One bit per stripe in a long lock set
+
+    private final ReentrantReadWriteLock registry = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[STRIPES];
+    private final ReentrantLock trendingLock = new ReentrantLock();
+    private final ThreadLocal<CompressedBitmap> feedCandidates = ThreadLocal.withInitial(CompressedBitmap::new);
+    private final Epochs epochs = new Epochs();
+    private final VersionedPostStore versions = new VersionedPostStore(epochs);
+    private volatile User[] publishedUsers; // users for lock-free reads, set after every create_user
+    private volatile Post[] publishedPosts; // posts for lock-free reads, set after every create_post
+
+    public ConcurrentManager() {
+        super(FeedMode.PULL);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        store = versions;
+        trendingHeap = new IndexedHeap(store);
+        publishedUsers = users;
+        publishedPosts = posts;
+    }
+
+    // Each thread builds its feeds in its own scratch bitmap
+    @Override
+    CompressedBitmap candidateScratch() {
+        return feedCandidates.get();
+    }
+
+    // Two readers of the same feed may run at once, so no cursor is kept between them
+    @Override
+    boolean keepsFeedCursors() {
+        return false;
+    }
+
+    @Override
+    public int userIndex(String id) {
+        registry.readLock().lock();
+        try {
+            return super.userIndex(id);
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int postIndex(String id) {
+        registry.readLock().lock();
+        try {
+            return super.postIndex(id);
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int userIndex(ByteBuffer buffer, int start, int length) {
+        registry.readLock().lock();
+        try {
+            return super.userIndex(buffer, start, length);
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int postIndex(ByteBuffer buffer, int start, int length) {
+        registry.readLock().lock();
+        try {
+            return super.postIndex(buffer, start, length);
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String userName(int userIndex) {
+        registry.readLock().lock();
+        try {
+            return super.userName(userIndex);
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String postName(int postIndex) {
+        registry.readLock().lock();
+        try {
+            return super.postName(postIndex);
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean createUser(String id) {
+        registry.writeLock().lock();
+        try {
+            boolean created = super.createUser(id);
+            publishedUsers = users;
+            return created;
+        } finally {
+            registry.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean createPost(int userId, String postId, String content) {
+        // Exclusive, so the new post is in the author's set and the trending heap before anyone can see it
+        registry.writeLock().lock();
+        try {
+            boolean created = super.createPost(userId, postId, content);
+            publishedPosts = posts;
+            epochs.publish();
+            return created;
+        } finally {
+            registry.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean followUser(int user1id, int user2id) {
+        registry.readLock().lock();
+        try {
+            if (!isUser(user1id) || !isUser(user2id)) {
+                return super.followUser(user1id, user2id);
+            }
+            long held = stripeOf(user1id) | stripeOf(user2id);
+            lockStripes(held, true);
+            try {
+                users[user1id].view = null;
+                return super.followUser(user1id, user2id);
+            } finally {
+                unlockStripes(held, true);
+            }
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean unfollowUser(int user1id, int user2id) {
+        registry.readLock().lock();
+        try {
+            if (!isUser(user1id) || !isUser(user2id)) {
+                return super.unfollowUser(user1id, user2id);
+            }
+            long held = stripeOf(user1id) | stripeOf(user2id);
+            lockStripes(held, true);
+            try {
+                users[user1id].view = null;
+                return super.unfollowUser(user1id, user2id);
+            } finally {
+                unlockStripes(held, true);
+            }
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean seePost(int userId, int postId) {
+        registry.readLock().lock();
+        try {
+            if (!isUser(userId) || !isPost(postId)) {
+                return super.seePost(userId, postId);
+            }
+            long held = stripeOf(userId) | stripeOf(store.author(postId));
+            lockStripes(held, true);
+            try {
+                users[userId].view = null;
+                return super.seePost(userId, postId);
+            } finally {
+                unlockStripes(held, true);
+            }
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean seeAllPosts(int viewerId, int viewedId) {
+        registry.readLock().lock();
+        try {
+            if (!isUser(viewerId) || !isUser(viewedId)) {
+                return super.seeAllPosts(viewerId, viewedId);
+            }
+            long held = stripeOf(viewerId) | stripeOf(viewedId); // The viewed user wrote every post involved
+            lockStripes(held, true);
+            try {
+                users[viewerId].view = null;
+                return super.seeAllPosts(viewerId, viewedId);
+            } finally {
+                unlockStripes(held, true);
+            }
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void toggleLike(int userId, int postId, OutputSink out) {
+        registry.readLock().lock();
+        try {
+            if (!isUser(userId) || !isPost(postId)) {
+                super.toggleLike(userId, postId, out);
+                return;
+            }
+            long held = stripeOf(userId) | stripeOf(store.author(postId));
+            lockStripes(held, true);
+            trendingLock.lock();
+            try {
+                users[userId].view = null;
+                super.toggleLike(userId, postId, out);
+                epochs.publish();
+            } finally {
+                trendingLock.unlock();
+                unlockStripes(held, true);
+            }
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    // Rank the feed as of the last published epoch, without waiting for any writer
+    @Override
+    public void generateFeed(int userIndex, int num, OutputSink out) {
+        if (!isUser(userIndex)) { // The index was looked up under the registry lock
+            super.generateFeed(userIndex, num, out);
+            return;
+        }
+        User user = publishedUsers[userIndex];
+        FeedView view;
+        int slot;
+        while (true) {
+            view = viewOf(user);
+            slot = epochs.pin();
+            // A writer drops the view before it publishes, so an unchanged view holds no change
+            // the pinned epoch misses and none it has not published yet
+            if (user.view == view) {
+                break;
+            }
+            epochs.unpin(slot);
+        }
+        try {
+            long epoch = epochs.epoch(slot);
+            Post[] posts = publishedPosts; // Holds every post of the epoch, it was set before the publish
+            TopKHeap feedHeap = new TopKHeap(num);
+            int candidates = 0;
+            for (int author : view.followed) {
+                candidates += versions.offerVisible(author, epoch, feedHeap, view.seen, view.liked, posts);
+            }
+            if (metrics != null) {
+                metrics.recordFeedCandidates(candidates);
+            }
+            writeFeed(user.id, feedHeap.drainDescending(), post -> versions.likesAt(post.index, epoch), num, out);
+        } finally {
+            epochs.unpin(slot);
+        }
+    }
+
+    @Override
+    public void scrollThroughFeed(int userIndex, int num, int[] likes, OutputSink out) {
+        registry.readLock().lock();
+        try {
+            if (!isUser(userIndex)) {
+                super.scrollThroughFeed(userIndex, num, likes, out);
+                return;
+            }
+            long held = lockFeedStripes(users[userIndex], true);
+            trendingLock.lock();
+            try {
+                users[userIndex].view = null;
+                super.scrollThroughFeed(userIndex, num, likes, out);
+                epochs.publish();
+            } finally {
+                trendingLock.unlock();
+                unlockStripes(held, true);
+            }
+        } finally {
+            registry.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void trending(int k, OutputSink out) {
+        registry.readLock().lock();
+        trendingLock.lock();
+        try {
+            super.trending(k, out);
+        } finally {
+            trendingLock.unlock();
+            registry.readLock().unlock();
+        }
+    }
+
+    // Sort the user's posts as of the last published epoch, without waiting for any writer
+    @Override
+    public void sortPosts(int userIndex, OutputSink out) {
+        if (!isUser(userIndex)) { // The index was looked up under the registry lock
+            super.sortPosts(userIndex, out);
+            return;
+        }
+        int slot = epochs.pin();
+        try {
+            long epoch = epochs.epoch(slot);
+            Post[] posts = publishedPosts;
+            CustomHeap allPostsHeap = new CustomHeap();
+            int count = versions.insertVisible(userIndex, epoch, allPostsHeap);
+            if (metrics != null) {
+                metrics.recordSortHeapSize(count);
+            }
+            writeSortedPosts(publishedUsers[userIndex].id, allPostsHeap, posts, post -> versions.likesAt(post.index, epoch), out);
+        } finally {
+            epochs.unpin(slot);
+        }
+    }
+
+    // Check that both sides of every relation agree, throws IllegalStateException if not
+    public void checkInvariants() {
+        registry.writeLock().lock(); // Excludes every other command
+        try {
+            for (int u = 0; u < userIds.size(); u++) {
+                User user = users[u];
+                for (IntIterator it = user.followed.iterator(); it.hasNext(); ) {
+                    int f = it.nextInt();
+                    if (!users[f].followers.contains(u)) {
+                        throw new IllegalStateException(user.id + " follows " + users[f].id + " but is not its follower");
+                    }
+                }
+                for (IntIterator it = user.followers.iterator(); it.hasNext(); ) {
+                    int f = it.nextInt();
+                    if (!users[f].followed.contains(u)) {
+                        throw new IllegalStateException(users[f].id + " is a follower of " + user.id + " but does not follow it");
+                    }
+                }
+                for (IntIterator it = user.likedPosts.iterator(); it.hasNext(); ) {
+                    Post post = posts[it.nextInt()];
+                    if (!post.whoLiked.contains(u)) {
+                        throw new IllegalStateException(user.id + " liked " + post.postId + " but is not in its likes");
+                    }
+                    if (!user.postSeen.contains(post.index)) {
+                        throw new IllegalStateException(user.id + " liked " + post.postId + " without seeing it");
+                    }
+                }
+                for (IntIterator it = user.ownPosts.iterator(); it.hasNext(); ) {
+                    Post post = posts[it.nextInt()];
+                    if (post.author != u) {
+                        throw new IllegalStateException(post.postId + " is in the posts of " + user.id + " but has another author");
+                    }
+                }
+            }
+            for (int p = 0; p < postIds.size(); p++) {
+                Post post = posts[p];
+                for (IntIterator it = post.whoLiked.iterator(); it.hasNext(); ) {
+                    User user = users[it.nextInt()];
+                    if (!user.likedPosts.contains(p)) {
+                        throw new IllegalStateException(post.postId + " counts a like of " + user.id + " who did not like it");
+                    }
+                }
+                if (!users[post.author].ownPosts.contains(p)) {
+                    throw new IllegalStateException(post.postId + " is missing from the posts of its author");
+                }
+                if (store.likes(p) != post.whoLiked.size()) {
+                    throw new IllegalStateException(post.postId + " ranks with " + store.likes(p) + " likes but has "
+                            + post.whoLiked.size());
+                }
+            }
+        } finally {
+            registry.writeLock().unlock();
+        }
+    }
+
+    // The user's frozen sets, copied under the user's stripe if a change dropped them
+    private FeedView viewOf(User user) {
+        FeedView view = user.view;
+        if (view != null) {
+            return view;
+        }
+        long held = stripeOf(user.index);
+        lockStripes(held, false);
+        try {
+            // Writers drop the view under the stripe's write lock, so this copy is current when set
+            view = new FeedView(user);
+            user.view = view;
+            return view;
+        } finally {
+            unlockStripes(held, false);
+        }
+    }
+
+    // Lock set bit of the stripe guarding a user
+    private static long stripeOf(int userIndex) {
+        return 1L << (userIndex & (STRIPES - 1));
+    }
+
+    // Lock the stripes of a user and everyone it follows, whose posts make up its feed
+    private long lockFeedStripes(User user, boolean write) {
+        long held = stripeOf(user.index);
+        while (true) {
+            lockStripes(held, write);
+            // The user's stripe is held, so the followed set cannot change while it is read
+            long needed = held;
+            for (IntIterator it = user.followed.iterator(); it.hasNext() && needed != -1L; ) {
+                needed |= stripeOf(it.nextInt());
+            }
+            if (needed == held) {
+                return held;
+            }
+            // A stripe below one already held may be needed, start over to keep the order
+            unlockStripes(held, write);
+            held = needed;
+        }
+    }
+
+    // Lock every stripe in the set, lowest first
+    private void lockStripes(long set, boolean write) {
+        for (long rest = set; rest != 0; rest &= rest - 1) {
+            ReentrantReadWriteLock stripe = stripes[Long.numberOfTrailingZeros(rest)];
+            if (write) {
+                stripe.writeLock().lock();
+            } else {
+                stripe.readLock().lock();
+            }
+        }
+    }
+
+    private void unlockStripes(long set, boolean write) {
+        for (long rest = set; rest != 0; rest &= rest - 1) {
+            ReentrantReadWriteLock stripe = stripes[Long.numberOfTrailingZeros(rest)];
+            if (write) {
+                stripe.writeLock().unlock();
+            } else {
+                stripe.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package feedmanager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Append-only store of post contents outside the Java heap. No command reads a post's
+// content back, so each one is kept as UTF-8 bytes in a segment and the Post only holds a
+// handle to it; the String is decoded again on the rare read (snapshots).
+// Segments are direct buffers until memoryBudget bytes of them exist, after that they are
+// mapped from a spill file, which the OS pages out instead of the GC walking it.
+// A record is a varint byte length followed by the bytes, and never crosses a segment.
+// A handle packs the segment index above the record's offset in it:
+//   segment << 32 | offset
+public class ContentArena {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+    private final int segmentSize; // Bytes of a regular segment, a larger record gets one of its own
+    private final long memoryBudget; // Bytes of direct segments before new ones are spilled
+    private final Path spillDirectory; // Where the spill file is created
+    private ByteBuffer[] segments = new ByteBuffer[16];
+    private int segmentCount;
+    private int position; // Next free byte of the last segment
+    private long directBytes; // Bytes of direct segments
+    private long spilledBytes; // Bytes of mapped segments, the length of the spill file
+    private long contentBytes; // Bytes of all records, length prefixes included
+    private FileChannel spill; // Opened on the first spilled segment
+
+    // Everything in direct memory
+    public ContentArena() {
+        this(Long.MAX_VALUE, null);
+    }
+
+    // Spill to a file in spillDirectory (the temporary directory if null) past memoryBudget bytes
+    public ContentArena(long memoryBudget, String spillDirectory) {
+        this(DEFAULT_SEGMENT_SIZE, memoryBudget, spillDirectory);
+    }
+
+    public ContentArena(int segmentSize, long memoryBudget, String spillDirectory) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = Paths.get(spillDirectory != null ? spillDirectory : System.getProperty("java.io.tmpdir"));
+    }
+
+    // Store a post's content and get its handle
+    public long add(String content) {
+        return add(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Store content already encoded as UTF-8 and get its handle
+    public long add(byte[] bytes) {
+        int needed = varIntSize(bytes.length) + bytes.length;
+        if (segmentCount == 0 || position + needed > segments[segmentCount - 1].capacity()) {
+            addSegment(Math.max(segmentSize, needed));
+        }
+        ByteBuffer segment = segments[segmentCount - 1];
+        long handle = (long) (segmentCount - 1) << 32 | position;
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            segment.put(position++, (byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        segment.put(position++, (byte) length);
+        segment.put(position, bytes); // Absolute, the buffer's own position is never used
+        position += bytes.length;
+        contentBytes += needed;
+        return handle;
+    }
+
+    // Get the UTF-8 bytes of a stored content
+    public byte[] bytes(long handle) {
+        ByteBuffer segment = segments[(int) (handle >>> 32)];
+        int offset = (int) handle;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = segment.get(offset++);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        byte[] bytes = new byte[length];
+        segment.get(offset, bytes);
+        return bytes;
+    }
+
+    // Materialize a stored content as a String
+    public String get(long handle) {
+        return new String(bytes(handle), StandardCharsets.UTF_8);
+    }
+
+    // Bytes of all stored contents, length prefixes included
+    public long contentBytes() {
+        return contentBytes;
+    }
+
+    // Bytes of segments held in direct memory
+    public long directBytes() {
+        return directBytes;
+    }
+
+    // Bytes of segments mapped from the spill file
+    public long spilledBytes() {
+        return spilledBytes;
+    }
+
+    private void addSegment(int size) {
+        ByteBuffer segment;
+        if (directBytes + size <= memoryBudget) {
+            segment = ByteBuffer.allocateDirect(size);
+            directBytes += size;
+        } else {
+            segment = mapSpilled(size);
+            spilledBytes += size;
+        }
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segmentCount * 2);
+        }
+        segments[segmentCount++] = segment;
+        position = 0;
+    }
+
+    // Map the next size bytes of the spill file, which grows to hold them
+    private ByteBuffer mapSpilled(int size) {
+        try {
+            if (spill == null) {
+                Path file = Files.createTempFile(spillDirectory, "post-content", ".arena");
+                // Deleted once open (on close outside Unix), the mappings keep the data
+                spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            return spill.map(FileChannel.MapMode.READ_WRITE, spilledBytes, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill post content to " + spillDirectory, e);
+        }
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
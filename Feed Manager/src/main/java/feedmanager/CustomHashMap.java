@@ -0,0 +1,234 @@
+package feedmanager;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class CustomHashMap<K, V> implements Iterable<K> {
+    private static final int DEFAULT_CAPACITY = 16; // Must be a power of two
+    private static final double LOAD_FACTOR = 0.75;
+
+    // Parallel arrays, slot i holds one key-value pair (open addressing, linear probing)
+    private Object[] keys; // Keys, null marks an empty slot
+    private Object[] values; // Values
+    private int[] hashes; // Cached spread hash of each key, so equals is skipped on a mismatch
+    private int mask; // keys.length - 1
+    private int size; // Number of key-value pairs
+    private int modCount; // Structural changes, for fail-fast iteration
+
+    public CustomHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CustomHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    // Hash function: mix the high bits into the low bits that the mask keeps
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Find the slot of a key, or -1 if the key is not present
+    private int findSlot(Object key, int hash) {
+        int index = hash & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask; // Wrap around
+        }
+        return -1;
+    }
+
+    // Put method: Adds a new key-value pair or updates an existing one
+    public boolean put(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("null key");
+
+        int hash = spread(key);
+        int index = hash & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                values[index] = value; // Update value
+                return false; // Key already existed, no new entry
+            }
+            index = (index + 1) & mask; // Wrap around
+        }
+        insertAt(index, key, value, hash);
+        return true; // New key-value pair added
+    }
+
+    // Get the value of a key, computing and storing it first if the key is absent
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        if (key == null) throw new IllegalArgumentException("null key");
+
+        int hash = spread(key);
+        int index = hash & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                @SuppressWarnings("unchecked")
+                V existing = (V) values[index];
+                if (existing != null) {
+                    return existing;
+                }
+                V value = mappingFunction.apply(key);
+                values[index] = value;
+                return value;
+            }
+            index = (index + 1) & mask; // Wrap around
+        }
+        V value = mappingFunction.apply(key);
+        if (value != null) {
+            insertAt(index, key, value, hash);
+        }
+        return value;
+    }
+
+    private void insertAt(int index, K key, V value, int hash) {
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = hash;
+        size++;
+        modCount++;
+        // Resize if load factor exceeded
+        if (size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    // Remove method: Removes a key-value pair by key
+    public boolean remove(K key) {
+        if (key == null) return false;
+
+        int hole = findSlot(key, spread(key));
+        if (hole < 0) {
+            return false; // Key not found
+        }
+        // Backward-shift deletion: pull later cluster members into the hole
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (keys[index] == null) {
+                break;
+            }
+            int home = hashes[index] & mask;
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hashes[hole] = hashes[index];
+                hole = index;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+        modCount++;
+        return true; // Key-value pair removed
+    }
+
+    // Get method: Retrieves the value associated with the key
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) return null;
+
+        int index = findSlot(key, spread(key));
+        return index < 0 ? null : (V) values[index]; // Null if the key is not found
+    }
+
+    // Check if the key is present
+    public boolean containsKey(K key) {
+        return key != null && findSlot(key, spread(key)) >= 0;
+    }
+
+    // Resize method: Doubles the table and moves the entries, reusing their cached hashes
+    private void resize() {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        keys = new Object[oldKeys.length * 2];
+        values = new Object[keys.length];
+        hashes = new int[keys.length];
+        mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = oldHashes[i] & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                hashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    // Method to get the current size of the map
+    public int size() {
+        return size;
+    }
+
+    // Call the action for every key-value pair
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], (V) values[i]);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    // Iterate over the keys
+    @Override
+    public Iterator<K> iterator() {
+        return new KeyIterator();
+    }
+
+    // Inner class for iterator
+    private class KeyIterator implements Iterator<K> {
+        private int currentIndex = 0;
+        private int elementsReturned = 0;
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return elementsReturned < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (currentIndex < keys.length) {
+                if (keys[currentIndex] != null) {
+                    K key = (K) keys[currentIndex];
+                    currentIndex++;
+                    elementsReturned++;
+                    return key;
+                }
+                currentIndex++;
+            }
+            throw new NoSuchElementException("No more elements");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package feedmanager;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class CustomHashSet<E> implements Iterable<E> {
+    private static final int DEFAULT_CAPACITY = 16; // Must be a power of two
+    private static final double LOAD_FACTOR = 0.75;
+    private Object[] table; // Elements, null marks an empty slot
+    private int[] hashes; // Cached spread hash of each element
+    private int mask; // table.length - 1
+    private int size;
+    private int modCount; // Structural changes, for fail-fast iteration
+
+    public CustomHashSet() {
+        this.table = new Object[DEFAULT_CAPACITY];
+        this.hashes = new int[DEFAULT_CAPACITY];
+        this.mask = DEFAULT_CAPACITY - 1;
+        this.size = 0;
+    }
+
+    // Mix the high bits into the low bits that the mask keeps
+    private static int spread(Object element) {
+        int h = element.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public boolean add(E element) {
+        if (element == null) throw new IllegalArgumentException("null value");
+
+        int hash = spread(element);
+        int index = hash & mask;
+        while (table[index] != null) {
+            if (hashes[index] == hash && table[index].equals(element)) {
+                return false; // Element already exists
+            }
+            index = (index + 1) & mask; // Wrap around
+        }
+
+        table[index] = element;
+        hashes[index] = hash;
+        size++;
+        modCount++;
+        // Resize if load factor exceeded
+        if (size > table.length * LOAD_FACTOR) {
+            resize();
+        }
+        return true;
+    }
+
+    private void resize() {
+        Object[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new Object[oldTable.length * 2];
+        hashes = new int[table.length];
+        mask = table.length - 1;
+
+        // Cached hashes mean no element is hashed again
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] != null) {
+                int index = oldHashes[i] & mask;
+                while (table[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = oldTable[i];
+                hashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    public boolean remove(E element) {
+        if (element == null) return false;
+
+        int hash = spread(element);
+        int index = hash & mask;
+        while (table[index] != null) {
+            if (hashes[index] == hash && table[index].equals(element)) {
+                deleteSlot(index);
+                size--;
+                modCount++;
+                return true;
+            }
+            index = (index + 1) & mask; // Wrap around
+        }
+        return false;
+    }
+
+    // Backward-shift deletion: pull later cluster members into the hole, no re-adding
+    private void deleteSlot(int hole) {
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (table[index] == null) {
+                break;
+            }
+            int home = hashes[index] & mask;
+            // Move the element only if its home slot is not between the hole and its slot
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                table[hole] = table[index];
+                hashes[hole] = hashes[index];
+                hole = index;
+            }
+        }
+        table[hole] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(E element) {
+        if (element == null) return false;
+
+        int hash = spread(element);
+        int index = hash & mask;
+        while (table[index] != null) {
+            if (hashes[index] == hash && table[index].equals(element)) {
+                return true;
+            }
+            index = (index + 1) & mask; // Wrap around
+        }
+        return false;
+    }
+
+    // Implementation of Iterable<E>
+    @Override
+    public Iterator<E> iterator() {
+        return new CustomHashSetIterator();
+    }
+
+    // Inner class for iterator, fails fast if the set changes while iterating
+    private class CustomHashSetIterator implements Iterator<E> {
+        private int currentIndex = 0;
+        private int elementsReturned = 0;
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return elementsReturned < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (currentIndex < table.length) {
+                if (table[currentIndex] != null) {
+                    E element = (E) table[currentIndex];
+                    currentIndex++;
+                    elementsReturned++;
+                    return element;
+                }
+                currentIndex++;
+            }
+            throw new NoSuchElementException("No more elements");
+        }
+    }
+}
@@ -1,52 +1,65 @@
-import java.util.ArrayList;
+package feedmanager;
+
+import java.util.Arrays;
 
 public class CustomHeap {
-    private ArrayList<Post> heap; // ArrayList to hold heap elements
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys; // PostStore sort keys of the heap elements
+    private int[] posts; // Post int ID of each key, moved along with it
+    private int size; // Number of elements in the heap
 
     // Constructor
     public CustomHeap() {
-        this.heap = new ArrayList<>();
+        this.keys = new long[INITIAL_CAPACITY];
+        this.posts = new int[INITIAL_CAPACITY];
     }
 
-    // Insert a new post into the heap
-    public void insert(Post post) {
-        heap.add(post);           // Add the new post at the end
-        siftUp(heap.size() - 1);  // Adjust its position
+    // Insert a new post into the heap, ranked by its sort key
+    public void insert(int post, long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            posts = Arrays.copyOf(posts, size * 2);
+        }
+        keys[size] = key;          // Add the new post at the end
+        posts[size] = post;
+        siftUp(size++);            // Adjust its position
     }
 
     // Remove and return the max (most liked post)
-    public Post extractMax() {
+    public int extractMax() {
         if (isEmpty()) {
             throw new IllegalStateException("Heap is empty");
         }
 
-        Post max = heap.get(0);                     // Root element is the max
-        Post last = heap.remove(heap.size() - 1);   // Remove the last element
+        int max = posts[0];                         // Root element is the max
+        size--;                                     // Remove the last element
 
-        if (!heap.isEmpty()) {
-            heap.set(0, last); // Move the last element to the root
-            siftDown(0);      // Adjust the heap
+        if (size > 0) {
+            keys[0] = keys[size];  // Move the last element to the root
+            posts[0] = posts[size];
+            siftDown(0);           // Adjust the heap
         }
 
         return max;
     }
 
     // Peek at the max element without removing it
-    public Post peek() {
+    public int peek() {
         if (isEmpty()) {
             throw new IllegalStateException("Heap is empty");
         }
-        return heap.get(0);
+        return posts[0];
     }
 
     // Check if the heap is empty
     public boolean isEmpty() {
-        return heap.isEmpty();
+        return size == 0;
     }
 
     // Get the size of the heap
     public int getSize() {
-        return heap.size();
+        return size;
     }
 
     // Sift up to maintain heap property
@@ -55,7 +68,7 @@ public class CustomHeap {
             int parentIndex = (index - 1) / 2;
 
             // Compare with parent
-            if (comparePosts(heap.get(index), heap.get(parentIndex)) > 0) {
+            if (keys[index] > keys[parentIndex]) {
                 swap(index, parentIndex);
                 index = parentIndex; // Move up to the parent's index
             } else {
@@ -75,14 +88,12 @@ public class CustomHeap {
             rightChild = 2 * index + 2;
 
             // Compare with left child
-            if (leftChild < heap.size() &&
-                    comparePosts(heap.get(leftChild), heap.get(largest)) > 0) {
+            if (leftChild < size && keys[leftChild] > keys[largest]) {
                 largest = leftChild;
             }
 
             // Compare with right child
-            if (rightChild < heap.size() &&
-                    comparePosts(heap.get(rightChild), heap.get(largest)) > 0) {
+            if (rightChild < size && keys[rightChild] > keys[largest]) {
                 largest = rightChild;
             }
 
@@ -97,20 +108,11 @@ public class CustomHeap {
 
     // Swap two elements in the heap
     private void swap(int i, int j) {
-        Post temp = heap.get(i);
-        heap.set(i, heap.get(j));
-        heap.set(j, temp);
-    }
-
-    // Custom comparator to compare two posts
-    private int comparePosts(Post p1, Post p2) {
-        // Compare by likes first
-        int likesDiff = p1.whoLiked.size() - p2.whoLiked.size();
-        if (likesDiff != 0) {
-            return likesDiff; // Higher likes come first
-        }
-
-        // If likes are equal, compare lexicographically by post ID
-        return p1.postId.compareTo(p2.postId); // Higher lexicographical order comes first
+        long tempKey = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tempKey;
+        int tempPost = posts[i];
+        posts[i] = posts[j];
+        posts[j] = tempPost;
     }
 }
@@ -0,0 +1,75 @@
+package feedmanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Epoch clock of ConcurrentManager's versioned reads. A writer stages its changes tagged with
+// the next epoch and publishes them all at once by advancing the clock, and a read pins the
+// current epoch and sees every value as of it, so each write is seen whole or not at all.
+// Only one writer stages at a time, the locks of ConcurrentManager see to that.
+// A pinned epoch sits in one of a fixed number of slots until its read ends; the oldest one
+// tells writers which old versions no read can reach any more.
+public class Epochs {
+    private static final int SLOTS = 256; // Reads pinned at once, more wait for a free slot, backing off as SpscRing does
+    private static final long FREE = Long.MAX_VALUE; // Slot value when nothing is pinned in it
+
+    private final AtomicLong published = new AtomicLong(); // Last published epoch
+    private final AtomicLongArray pins = new AtomicLongArray(SLOTS); // Epoch pinned in each slot
+
+    public Epochs() {
+        for (int i = 0; i < SLOTS; i++) {
+            pins.set(i, FREE);
+        }
+    }
+
+    // Epoch the changes staged now are tagged with
+    public long next() {
+        return published.get() + 1;
+    }
+
+    // Make the staged changes visible to every read pinned from now on
+    public void publish() {
+        published.incrementAndGet();
+    }
+
+    // Pin the last published epoch for a read, returns the slot to read it from and unpin
+    @SuppressWarnings("deprecation") // Thread.threadId() is Java 19
+    public int pin() {
+        int slot = (int) Thread.currentThread().getId() & (SLOTS - 1);
+        int idle = 0; // Rounds over every slot without a free one
+        for (int tries = 1; ; tries++) {
+            long epoch = published.get();
+            if (pins.compareAndSet(slot, FREE, epoch)) {
+                // A writer may have looked at the slot before the pin landed, and then only kept
+                // what the epoch it read could see, so the pin holds once the clock is unchanged
+                long now;
+                while ((now = published.get()) != epoch) {
+                    epoch = now;
+                    pins.set(slot, epoch);
+                }
+                return slot;
+            }
+            slot = (slot + 1) & (SLOTS - 1);
+            if (tries % SLOTS == 0) {
+                idle = SpscRing.backOff(idle); // Every slot is taken
+            }
+        }
+    }
+
+    public long epoch(int slot) {
+        return pins.get(slot);
+    }
+
+    public void unpin(int slot) {
+        pins.set(slot, FREE);
+    }
+
+    // Oldest epoch a read may be pinned at, now or from now on
+    public long oldestPinned() {
+        long oldest = published.get();
+        for (int i = 0; i < SLOTS; i++) {
+            oldest = Math.min(oldest, pins.get(i));
+        }
+        return oldest;
+    }
+}
@@ -0,0 +1,132 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+// Pull mode: the feed of one user kept between generate_feed and scroll_through_feed calls,
+// so a user reading page after page does not merge the followed users' posts every time.
+// It holds the best candidates of the last full selection in ranking order, and all of them
+// when there were few enough. Posts the user has since seen or liked are skipped as they come
+// up, and posts created since are merged in, neither moves the others. Scrolled past posts are
+// dropped, so their new like counts do not matter either.
+// The followed users keep the cursor up to date themselves, so a read does not look at them:
+// each new post of theirs is queued in it to be merged at the next read, and a like of one of
+// their posts makes it stale, as does dropping it, and the Manager builds a new one then.
+public class FeedCursor {
+    private static final int[] NO_POSTS = new int[0];
+    private static final int MAX_NEW_POSTS = 1 << 16; // New posts queued before merging again is cheaper
+
+    private int[] posts; // Post int IDs, most liked first
+    private int size;
+    private int position; // Entries before it are seen or liked, they never come back
+    private int end; // Entries before it were seen or returned by the last top()
+    private final boolean complete; // Holds every candidate, not only the best ones
+    private int[] newPosts = NO_POSTS; // Posts of followed users created since the last read
+    private int newPostCount;
+    private boolean stale; // A like count may have moved its posts, or it was dropped
+
+    // Posts are the selected candidates, most liked first
+    public FeedCursor(int[] posts, boolean complete) {
+        this.posts = posts;
+        this.size = posts.length;
+        this.complete = complete;
+    }
+
+    // Get the top num posts not seen or liked, most liked first, or null when the cursor
+    // runs out before num and candidates past its end may exist
+    public int[] top(int num, SeenPosts seen, CompressedBitmap liked) {
+        while (position < size && (seen.contains(posts[position]) || liked.contains(posts[position]))) {
+            position++;
+        }
+        int[] result = new int[Math.max(0, Math.min(num, size - position))];
+        int count = 0;
+        end = position;
+        while (end < size && count < result.length) {
+            int post = posts[end++];
+            if (!seen.contains(post) && !liked.contains(post)) {
+                result[count++] = post;
+            }
+        }
+        if (count < num && !complete) {
+            return null;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Drop the posts the last top() returned, once they were scrolled past. Their like counts
+    // may change from then on, which would break the order if they stayed.
+    public void consumeTop() {
+        position = end;
+    }
+
+    // Merge in a post created after the cursor was built. A post ranked below the last entry
+    // of an incomplete cursor is left out, as are the candidates it never held.
+    public void insert(int post, PostStore store) {
+        long key = store.sortKey(post);
+        if (!complete && (position == size || key < store.sortKey(posts[size - 1]))) {
+            return;
+        }
+        // Binary search among the live entries, which are in descending key order
+        int low = position;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.sortKey(posts[mid]) > key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (size == posts.length) {
+            posts = Arrays.copyOf(posts, Math.max(16, size * 2));
+        }
+        System.arraycopy(posts, low, posts, low + 1, size - low);
+        posts[low] = post;
+        size++;
+    }
+
+    // Number of live entries, for Metrics
+    public int size() {
+        return size - position;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    // Never use the cursor again, and let go of its posts, as followed users may still hold it
+    public void invalidate() {
+        stale = true;
+        posts = NO_POSTS;
+        size = 0;
+        position = 0;
+        end = 0;
+        newPosts = NO_POSTS;
+        newPostCount = 0;
+    }
+
+    // Queue a followed user's new post, to be merged by mergeNewPosts
+    public void addNewPost(int post) {
+        if (newPostCount == MAX_NEW_POSTS) {
+            invalidate();
+            return;
+        }
+        if (newPostCount == newPosts.length) {
+            newPosts = Arrays.copyOf(newPosts, Math.max(4, newPostCount * 2));
+        }
+        newPosts[newPostCount++] = post;
+    }
+
+    // Merge in the queued new posts the user has not seen or liked
+    public void mergeNewPosts(PostStore store, SeenPosts seen, CompressedBitmap liked) {
+        for (int i = 0; i < newPostCount; i++) {
+            int post = newPosts[i];
+            if (!seen.contains(post) && !liked.contains(post)) {
+                insert(post, store);
+            }
+        }
+        newPostCount = 0;
+        if (newPosts.length > 64) {
+            newPosts = NO_POSTS; // Give back what a burst of posts took
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+public class FeedIndex {
+    // Treap node, ordered by the post ranking and balanced by a random priority
+    private static class Node {
+        int post; // Int ID of the post stored in this node
+        int priority; // Heap priority that keeps the tree balanced
+        Node left; // Lower ranked posts
+        Node right; // Higher ranked posts
+
+        Node(int post, int priority) {
+            this.post = post;
+            this.priority = priority;
+        }
+    }
+
+    private final PostStore store; // Sort keys of the posts
+    private Node root; // Root of the treap
+    private int size; // Number of posts in the index
+    private int seed = 0x2545F491; // State of the priority generator
+
+    // Constructor
+    public FeedIndex(PostStore store) {
+        this.store = store;
+    }
+
+    // Insert a post, its like count must not change while it is indexed (relabels keep the order)
+    public boolean insert(int post) {
+        int before = size;
+        root = insert(root, post, store.sortKey(post));
+        return size > before;
+    }
+
+    // Remove a post, must be called before its like count changes
+    public boolean remove(int post) {
+        int before = size;
+        root = remove(root, store.sortKey(post));
+        return size < before;
+    }
+
+    // Get the top num posts, most liked first
+    public int[] top(int num) {
+        int limit = Math.max(0, Math.min(num, size));
+        int[] result = new int[limit];
+        Node[] stack = new Node[32];
+        int depth = 0;
+        int count = 0;
+        Node current = root;
+
+        // Reverse in-order walk that stops after num posts
+        while (count < limit && (current != null || depth > 0)) {
+            while (current != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = current;
+                current = current.right;
+            }
+            current = stack[--depth];
+            result[count++] = current.post;
+            current = current.left;
+        }
+        return result;
+    }
+
+    // Offer posts to a heap from the highest ranked down, skipping those in seen or liked,
+    // until the heap turns one down: every post after it ranks lower still. Returns the posts offered.
+    // posts is indexed by post int ID.
+    public int offerUnseen(TopKHeap heap, SeenPosts seen, CompressedBitmap liked, Post[] posts) {
+        Node[] stack = new Node[32];
+        int depth = 0;
+        int offered = 0;
+        Node current = root;
+
+        // Reverse in-order walk, as in top
+        while (current != null || depth > 0) {
+            while (current != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = current;
+                current = current.right;
+            }
+            current = stack[--depth];
+            int post = current.post;
+            if (!seen.contains(post) && !liked.contains(post)) {
+                offered++;
+                if (!heap.offer(posts[post], store.sortKey(post))) {
+                    break;
+                }
+            }
+            current = current.left;
+        }
+        return offered;
+    }
+
+    // Get the number of posts in the index
+    public int size() {
+        return size;
+    }
+
+    private Node insert(Node node, int post, long key) {
+        if (node == null) {
+            size++;
+            return new Node(post, nextPriority());
+        }
+        long nodeKey = store.sortKey(node.post);
+        if (key == nodeKey) {
+            return node; // Already indexed
+        }
+        if (key < nodeKey) {
+            node.left = insert(node.left, post, key);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, post, key);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        return node;
+    }
+
+    // Sort keys are unique, as no two posts share a post ID
+    private Node remove(Node node, long key) {
+        if (node == null) {
+            return null; // Not indexed
+        }
+        long nodeKey = store.sortKey(node.post);
+        if (key < nodeKey) {
+            node.left = remove(node.left, key);
+        } else if (key > nodeKey) {
+            node.right = remove(node.right, key);
+        } else {
+            size--;
+            return merge(node.left, node.right);
+        }
+        return node;
+    }
+
+    // Merge two treaps where every post in left ranks below every post in right
+    private Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        return pivot;
+    }
+
+    // Xorshift generator, deterministic so runs are reproducible
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,7 @@
+package feedmanager;
+
+public enum FeedMode {
+    PULL, // Build each feed at read time from the followed users' posts
+    PUSH, // Keep a materialized feed per user, updated on every write
+    HYBRID // Push posts of most authors, pull those of authors with very many followers at read time
+}
@@ -0,0 +1,20 @@
+package feedmanager;
+
+// A user's followed, seen and liked sets, frozen for ConcurrentManager's lock-free feed reads.
+// Copied from the live sets under the user's stripe, and dropped rather than changed when
+// one of them changes, so a read holding it needs no lock.
+public class FeedView {
+    final int[] followed; // Followed user int IDs, ascending
+    final SeenPosts seen;
+    final CompressedBitmap liked = new CompressedBitmap();
+
+    FeedView(User user) {
+        followed = new int[user.followed.size()];
+        int i = 0;
+        for (IntIterator it = user.followed.iterator(); it.hasNext(); ) {
+            followed[i++] = it.nextInt();
+        }
+        seen = user.postSeen.copy();
+        liked.or(user.likedPosts);
+    }
+}
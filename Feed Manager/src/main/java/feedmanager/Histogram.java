@@ -0,0 +1,81 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+// Log-linear histogram of non-negative longs, in the style of HdrHistogram.
+// Values below 256 get one bucket each; above that every power of two is split into
+// 128 buckets, so a recorded value is off by less than 1%. Recording never allocates.
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7; // 128 buckets per power of two
+    private static final long MAX_VALUE = (1L << 40) - 1; // About 18 minutes in nanoseconds
+
+    private final long[] counts = new long[indexOf(MAX_VALUE) + 1];
+    private long totalCount;
+    private long max;
+
+    // Bucket of a value: its top 8 significant bits, shifted into place
+    private static int indexOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    // Highest value that falls into a bucket
+    private static long highestValueOf(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long sub = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        if (value > max) {
+            max = value; // Before the clamp, so max keeps the real value
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts[indexOf(value)]++;
+        totalCount++;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    // Smallest recorded value such that percentile % of the values are at or below it, up to bucket precision
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Add the values of another histogram to this one
+    public void add(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,155 @@
+package feedmanager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdInterner {
+    private static final int DEFAULT_CAPACITY = 16; // Must be a power of two
+    private static final double LOAD_FACTOR = 0.75;
+    private static final AtomicLong resizes = new AtomicLong(); // Resizes of all instances, for Metrics
+
+    private String[] keys; // Open addressing table of string IDs
+    private int[] hashes; // Cached hash of each key, compared before equals
+    private int[] values; // Dense int ID of each key
+    private int mask; // keys.length - 1
+    private String[] names; // Dense int ID -> string ID
+    private int size; // Number of interned IDs
+
+    public IdInterner() {
+        this(0);
+    }
+
+    // Sized so expectedSize IDs fit without a resize
+    public IdInterner(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        names = new String[Math.max(DEFAULT_CAPACITY, expectedSize)];
+        size = 0;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    // Get the int ID of a string ID, or -1 if it was never interned
+    public int indexOf(String key) {
+        int hash = key.hashCode();
+        int index = spread(hash) & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Get the int ID of a string ID stored as bytes in a buffer, without creating a String
+    public int indexOf(ByteBuffer buffer, int start, int length) {
+        // Same hash as String.hashCode, which is only simple to compute for ASCII
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                return indexOf(decode(buffer, start, length)); // Rare non-ASCII ID
+            }
+            hash = 31 * hash + b;
+        }
+        int index = spread(hash) & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && equalsAscii(keys[index], buffer, start, length)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean equalsAscii(String key, ByteBuffer buffer, int start, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    // Intern a new string ID and return its int ID, or -1 if it already exists
+    public int add(String key) {
+        int hash = key.hashCode();
+        int index = spread(hash) & mask;
+        while (keys[index] != null) {
+            if (hashes[index] == hash && keys[index].equals(key)) {
+                return -1; // Already interned
+            }
+            index = (index + 1) & mask;
+        }
+        int id = size++;
+        keys[index] = key;
+        hashes[index] = hash;
+        values[index] = id;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+        }
+        names[id] = key;
+        if (size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        return id;
+    }
+
+    // Get the string ID of an int ID
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Number of times any instance has grown its table
+    public static long resizeCount() {
+        return resizes.get();
+    }
+
+    private void resize() {
+        resizes.incrementAndGet();
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        hashes = new int[keys.length];
+        values = new int[keys.length];
+        mask = keys.length - 1;
+
+        // Cached hashes mean no key is hashed again
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = spread(oldHashes[i]) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                hashes[index] = oldHashes[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+public class IndexedHeap {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final PostStore store; // Sort keys of the posts
+    private int[] heap; // Max-heap of post int IDs, most liked at the root
+    private int size; // Number of posts in the heap
+    private int[] slots; // Post int ID -> position in the heap, -1 when absent
+
+    // Constructor
+    public IndexedHeap(PostStore store) {
+        this(store, DEFAULT_CAPACITY);
+    }
+
+    // Sized so posts with int IDs below capacity fit without growing
+    public IndexedHeap(PostStore store, int capacity) {
+        capacity = Math.max(DEFAULT_CAPACITY, capacity);
+        this.store = store;
+        this.heap = new int[capacity];
+        this.size = 0;
+        this.slots = new int[capacity];
+        Arrays.fill(slots, -1);
+    }
+
+    // Insert a new post into the heap
+    public boolean insert(int post) {
+        if (contains(post)) {
+            return false; // Already in the heap
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        if (post >= slots.length) {
+            int oldLength = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(oldLength * 2, post + 1));
+            Arrays.fill(slots, oldLength, slots.length, -1);
+        }
+        heap[size] = post;
+        slots[post] = size;
+        siftUp(size++);
+        return true;
+    }
+
+    // Restore the order after the post gained likes
+    public void increaseKey(int post) {
+        siftUp(slotOf(post));
+    }
+
+    // Restore the order after the post lost likes
+    public void decreaseKey(int post) {
+        siftDown(slotOf(post));
+    }
+
+    // Check if the post is in the heap
+    public boolean contains(int post) {
+        return post < slots.length && slots[post] >= 0;
+    }
+
+    // Get the top k posts, most liked first, without changing the heap
+    public int[] top(int k) {
+        int limit = Math.max(0, Math.min(k, size));
+        int[] result = new int[limit];
+        if (limit == 0) {
+            return result;
+        }
+        // Frontier of candidate slots, itself kept as a max-heap; it never holds more than k + 1 slots
+        int[] frontier = new int[limit + 1];
+        int frontierSize = 0;
+        frontier[frontierSize++] = 0;
+        for (int count = 0; count < limit; count++) {
+            int best = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            frontierSiftDown(frontier, frontierSize);
+            result[count] = heap[best];
+            // The next best post is either in the frontier or a child of the one just taken
+            for (int child = 2 * best + 1; child <= 2 * best + 2 && child < size; child++) {
+                frontier[frontierSize] = child;
+                frontierSiftUp(frontier, frontierSize++);
+            }
+        }
+        return result;
+    }
+
+    // Check if the heap is empty
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Get the size of the heap
+    public int getSize() {
+        return size;
+    }
+
+    private int slotOf(int post) {
+        if (!contains(post)) {
+            throw new IllegalArgumentException("Post not in heap: " + post);
+        }
+        return slots[post];
+    }
+
+    // Sift up to maintain heap property
+    private void siftUp(int index) {
+        int post = heap[index];
+        long key = store.sortKey(post);
+        while (index > 0) {
+            int parentIndex = (index - 1) / 2;
+            if (key <= store.sortKey(heap[parentIndex])) {
+                break;
+            }
+            move(parentIndex, index);
+            index = parentIndex;
+        }
+        place(post, index);
+    }
+
+    // Sift down to maintain heap property
+    private void siftDown(int index) {
+        int post = heap[index];
+        long key = store.sortKey(post);
+        int half = size / 2;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            long childKey = store.sortKey(heap[child]);
+            // Pick the larger child
+            if (right < size) {
+                long rightKey = store.sortKey(heap[right]);
+                if (rightKey > childKey) {
+                    child = right;
+                    childKey = rightKey;
+                }
+            }
+            if (key >= childKey) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        place(post, index);
+    }
+
+    // Move the post at from into slot to, keeping the slot index in sync
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        slots[heap[to]] = to;
+    }
+
+    private void place(int post, int index) {
+        heap[index] = post;
+        slots[post] = index;
+    }
+
+    private void frontierSiftUp(int[] frontier, int index) {
+        int slot = frontier[index];
+        long key = store.sortKey(heap[slot]);
+        while (index > 0) {
+            int parentIndex = (index - 1) / 2;
+            if (key <= store.sortKey(heap[frontier[parentIndex]])) {
+                break;
+            }
+            frontier[index] = frontier[parentIndex];
+            index = parentIndex;
+        }
+        frontier[index] = slot;
+    }
+
+    private void frontierSiftDown(int[] frontier, int frontierSize) {
+        if (frontierSize == 0) {
+            return;
+        }
+        int index = 0;
+        int slot = frontier[0];
+        long key = store.sortKey(heap[slot]);
+        int half = frontierSize / 2;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < frontierSize
+                    && store.sortKey(heap[frontier[right]]) > store.sortKey(heap[frontier[child]])) {
+                child = right;
+            }
+            if (key >= store.sortKey(heap[frontier[child]])) {
+                break;
+            }
+            frontier[index] = frontier[child];
+            index = child;
+        }
+        frontier[index] = slot;
+    }
+}
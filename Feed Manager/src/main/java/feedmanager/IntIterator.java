@@ -0,0 +1,9 @@
+package feedmanager;
+
+public interface IntIterator {
+    // Check if there are more elements
+    boolean hasNext();
+
+    // Get the next element, without boxing it
+    int nextInt();
+}
@@ -0,0 +1,422 @@
+package feedmanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead journal of the state changes made by a Manager.
+// File layout: MAGIC, VERSION, then the checkpoint and the user and post counts of the state
+// the journal starts from (fixed ints), followed by records of
+//   payload length (fixed int), CRC32 of the payload (fixed int), payload
+// where the payload is a record type byte and varints (strings as length + UTF-8).
+// IDs are int IDs, which replaying in order assigns again exactly as the first run did.
+// Manager logs a change once it has checked it and before it makes it, so no change is ever
+// live without its record. Records have no size limit; one larger than the buffer bypasses it.
+// The checkpoint is the number of the snapshot the journal continues (Manager.checkpoint).
+// Saving a snapshot takes the next number before the journal is reset to it, so a journal
+// left behind by a crash in between names an older snapshot than the one loaded: everything
+// in it is in that snapshot already, and it is skipped rather than replayed again.
+//
+// Records are collected in a buffer, handed to the OS at the end of every command and
+// forced to disk as a group: every syncRecords records and once the oldest unforced record
+// is syncMillis milliseconds old (checked after every command and by a timer thread while
+// no command comes), whichever is first, and on close. Both 0 leaves syncing to the OS.
+// The timer makes the journal shared between two threads, so its methods synchronize.
+public class Journal implements Closeable {
+    private static final int MAGIC = 0x464D4A4E; // "FMJN"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+    private static final int BUFFER_SIZE = 1 << 21;
+    private static final int PAYLOAD_SIZE = 1 << 12; // Initial bytes of the record being built, it grows as needed
+
+    // Record types
+    private static final byte CREATE_USER = 1;
+    private static final byte FOLLOW_USER = 2;
+    private static final byte UNFOLLOW_USER = 3;
+    private static final byte CREATE_POST = 4;
+    private static final byte SEE_POST = 5;
+    private static final byte SEE_ALL_POSTS = 6;
+    private static final byte TOGGLE_LIKE = 7;
+    private static final byte SCROLLED_PAST = 8; // A post seen in scroll_through_feed
+    private static final byte SCROLLED_PAST_LIKED = 9; // Same, with the like button clicked
+
+    private final FileChannel channel;
+    private final int syncRecords; // Force after this many records, 0 for no count limit
+    private final long syncNanos; // Force when the oldest unforced record is this old, 0 for no time limit
+    private final Thread syncTimer; // Forces an idle tail when syncNanos is set, null otherwise
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Records not yet written
+    private ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_SIZE); // Record being built
+    private final CRC32 crc = new CRC32();
+    private int unforced; // Records appended since the last force
+    private long firstUnforced; // nanoTime of the oldest unforced record
+
+    // Figures for printStats
+    private long records;
+    private long forces;
+    private long replayed;
+    private boolean skipped; // The records found were already in the loaded snapshot
+
+    // Open a journal, recovering the records it already holds into the manager
+    public Journal(String path, Manager manager, int syncRecords, long syncMillis) throws IOException {
+        this.syncRecords = syncRecords;
+        this.syncNanos = syncMillis * 1_000_000;
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeHeader(manager);
+        } else {
+            recover(manager);
+        }
+        manager.journal = this;
+        if (syncMillis > 0) {
+            syncTimer = new Thread(() -> syncWhenDue(Math.max(1, syncMillis / 2)), "journal-sync");
+            syncTimer.setDaemon(true);
+            syncTimer.start();
+        } else {
+            syncTimer = null;
+        }
+    }
+
+    private void writeHeader(Manager manager) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(manager.checkpoint)
+                .putInt(manager.userIds.size()).putInt(manager.postIds.size());
+        header.flip();
+        channel.truncate(0);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+    }
+
+    // Start over from the manager's current state, once it is safely in a snapshot
+    public synchronized void reset(Manager manager) throws IOException {
+        sync();
+        writeHeader(manager);
+    }
+
+    // Replay every intact record, then cut off a torn last record left by a crash.
+    // A bad record with more records after it is corruption, not a crash, and is refused.
+    private void recover(Manager manager) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            writeHeader(manager); // A reset cut short by a crash, its snapshot is already on disk
+            return;
+        }
+        ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (file.getInt() != MAGIC) {
+            throw new IOException("Not a journal");
+        }
+        int version = file.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+        int checkpoint = file.getInt();
+        if (checkpoint < manager.checkpoint) {
+            // Left by a crash between saving the loaded snapshot and resetting the journal
+            skipped = true;
+            writeHeader(manager);
+            return;
+        }
+        if (checkpoint > manager.checkpoint) {
+            throw new IOException("Journal continues snapshot checkpoint " + checkpoint + ", but the state is at "
+                    + manager.checkpoint + "; load the snapshot it was started from");
+        }
+        int users = file.getInt();
+        int posts = file.getInt();
+        if (users != manager.userIds.size() || posts != manager.postIds.size()) {
+            throw new IOException("Journal starts from " + users + " users and " + posts
+                    + " posts, but the state has " + manager.userIds.size() + " and " + manager.postIds.size()
+                    + "; load the snapshot it was started from");
+        }
+
+        ByteArrayOutputSink discarded = new ByteArrayOutputSink(256); // toggle_like logs, not needed here
+        long end = HEADER_SIZE; // End of the last intact record
+        while (file.remaining() >= 8) {
+            int length = file.getInt();
+            int checksum = file.getInt();
+            if (length <= 0 || length > file.remaining() || !intact(file, file.position(), length, checksum)) {
+                checkTorn(file, (int) end);
+                break;
+            }
+            ByteBuffer record = file.slice(file.position(), length);
+            apply(manager, record, discarded);
+            discarded.reset();
+            file.position(file.position() + length);
+            end = file.position();
+            replayed++;
+        }
+        if (end < size) {
+            System.err.println("Journal: cut off a torn last record, " + (size - end) + " bytes at byte " + end);
+        }
+        channel.truncate(end);
+        channel.position(end);
+    }
+
+    private boolean intact(ByteBuffer file, int start, int length, int checksum) {
+        crc.reset();
+        crc.update(file.slice(start, length));
+        return (int) crc.getValue() == checksum;
+    }
+
+    // A bad record is a torn tail left by a crash in the middle of a write when no intact record
+    // starts anywhere after it. Otherwise the journal was damaged in the middle, and cutting it
+    // there would silently drop the intact records after the damage, so this throws.
+    private void checkTorn(ByteBuffer file, int bad) throws IOException {
+        int size = file.limit();
+        for (int at = bad + 1; at + 8 < size; at++) {
+            int length = file.getInt(at);
+            int type = file.get(at + 8);
+            if (length > 0 && length <= size - at - 8 && type >= CREATE_USER && type <= SCROLLED_PAST_LIKED
+                    && intact(file, at + 8, length, file.getInt(at + 4))) {
+                throw new IOException("Journal record at byte " + bad + " is corrupt, but an intact one follows at byte "
+                        + at + " (" + (size - bad) + " bytes would be lost); restore the journal, or move it aside to "
+                        + "start without it");
+            }
+        }
+    }
+
+    // Redo one record, through the same Manager methods that made the change
+    private static void apply(Manager manager, ByteBuffer record, OutputSink discarded) throws IOException {
+        byte type = record.get();
+        switch (type) {
+            case CREATE_USER:
+                manager.createUser(readString(record));
+                break;
+            case FOLLOW_USER:
+                manager.followUser(readVarInt(record), readVarInt(record));
+                break;
+            case UNFOLLOW_USER:
+                manager.unfollowUser(readVarInt(record), readVarInt(record));
+                break;
+            case CREATE_POST:
+                manager.createPost(readVarInt(record), readString(record), readString(record));
+                break;
+            case SEE_POST:
+                manager.seePost(readVarInt(record), readVarInt(record));
+                break;
+            case SEE_ALL_POSTS:
+                manager.seeAllPosts(readVarInt(record), readVarInt(record));
+                break;
+            case TOGGLE_LIKE:
+                manager.toggleLike(readVarInt(record), readVarInt(record), discarded);
+                break;
+            case SCROLLED_PAST:
+            case SCROLLED_PAST_LIKED:
+                manager.scrollPast(manager.users[readVarInt(record)], manager.posts[readVarInt(record)],
+                        type == SCROLLED_PAST_LIKED);
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    synchronized void logCreateUser(String userId) {
+        payload.put(CREATE_USER);
+        putString(userId);
+        append();
+    }
+
+    synchronized void logFollow(int user1, int user2) {
+        append(FOLLOW_USER, user1, user2);
+    }
+
+    synchronized void logUnfollow(int user1, int user2) {
+        append(UNFOLLOW_USER, user1, user2);
+    }
+
+    synchronized void logCreatePost(int user, String postId, String content) {
+        payload.put(CREATE_POST);
+        putVarInt(user);
+        putString(postId);
+        putString(content);
+        append();
+    }
+
+    synchronized void logSeePost(int user, int post) {
+        append(SEE_POST, user, post);
+    }
+
+    synchronized void logSeeAllPosts(int viewer, int viewed) {
+        append(SEE_ALL_POSTS, viewer, viewed);
+    }
+
+    synchronized void logToggleLike(int user, int post) {
+        append(TOGGLE_LIKE, user, post);
+    }
+
+    synchronized void logScrolledPast(int user, int post, boolean liked) {
+        append(liked ? SCROLLED_PAST_LIKED : SCROLLED_PAST, user, post);
+    }
+
+    private void append(byte type, int a, int b) {
+        payload.put(type);
+        putVarInt(a);
+        putVarInt(b);
+        append();
+    }
+
+    // Frame the built payload into the buffer, forcing the group to disk when it is due.
+    // A record larger than the whole buffer goes straight to the channel after it.
+    private void append() {
+        payload.flip();
+        crc.reset();
+        crc.update(payload.duplicate());
+        int frame = 8 + payload.remaining();
+        if (buffer.remaining() < frame) {
+            write();
+        }
+        if (frame > buffer.capacity()) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+            writeFully(header);
+            writeFully(payload);
+        } else {
+            buffer.putInt(payload.remaining()).putInt((int) crc.getValue()).put(payload);
+        }
+        if (payload.capacity() > PAYLOAD_SIZE) {
+            payload = ByteBuffer.allocate(PAYLOAD_SIZE); // Give back what an unusually large record took
+        } else {
+            payload.clear();
+        }
+        records++;
+
+        if (unforced++ == 0) {
+            firstUnforced = syncNanos > 0 ? System.nanoTime() : 0;
+        }
+        if (syncRecords > 0 && unforced >= syncRecords) {
+            sync();
+        }
+    }
+
+    // Hand the command's records to the OS, and force them if the time limit is due
+    public synchronized void endCommand() {
+        if (syncDue()) {
+            sync();
+        } else if (buffer.position() > 0) {
+            write();
+        }
+    }
+
+    private boolean syncDue() {
+        return syncNanos > 0 && unforced > 0 && System.nanoTime() - firstUnforced >= syncNanos;
+    }
+
+    // Timer thread: force records that no later command will, every periodMillis until closed
+    private void syncWhenDue(long periodMillis) {
+        while (true) {
+            try {
+                Thread.sleep(periodMillis);
+            } catch (InterruptedException e) {
+                return; // Closed
+            }
+            synchronized (this) {
+                if (!channel.isOpen()) {
+                    return;
+                }
+                if (syncDue()) {
+                    sync();
+                }
+            }
+        }
+    }
+
+    // Hand the buffered records to the OS
+    private void write() {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Write the buffered records and force them to disk
+    public synchronized void sync() {
+        write();
+        if (unforced > 0) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            forces++;
+            unforced = 0;
+        }
+    }
+
+    private void putVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            payload.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        payload.put((byte) value);
+    }
+
+    private void putString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (payload.remaining() < 5 + bytes.length) {
+            // Grow for a long string, varints fit in what is left of the initial size
+            int needed = payload.position() + 5 + bytes.length + 64;
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(payload.capacity() * 2, needed));
+            payload.flip();
+            payload = larger.put(payload);
+        }
+        putVarInt(bytes.length);
+        payload.put(bytes);
+    }
+
+    private static int readVarInt(ByteBuffer record) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = record.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in journal");
+    }
+
+    private static String readString(ByteBuffer record) throws IOException {
+        byte[] bytes = new byte[readVarInt(record)];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void printStats(PrintStream out) {
+        out.println("Journal: " + (skipped ? "records already in the snapshot skipped" : replayed + " records recovered")
+                + ", " + records + " appended, " + forces + " forces");
+    }
+
+    // Sync and close, does nothing once closed
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        if (syncTimer != null) {
+            syncTimer.interrupt();
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
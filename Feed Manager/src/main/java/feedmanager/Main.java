@@ -0,0 +1,301 @@
+package feedmanager;
+
+import java.io.*;
+
+public class Main {
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            if (arg.startsWith("--serve=") && args.length > 1) {
+                throw new IllegalArgumentException("--serve only works alone");
+            }
+        }
+        if (args.length == 1 && args[0].startsWith("--serve=")) {
+            // No files: commands come from the clients of a local socket, until the process is stopped
+            new Server(new ConcurrentManager(), Server.parseAddress(args[0].substring("--serve=".length()))).run();
+            return;
+        }
+
+        // Read input and output file paths from command-line arguments
+        String inputFilePath = args[0];
+        String outputFilePath = args[1];
+
+        // Optional flags after the file paths
+        FeedMode feedMode = FeedMode.PULL;
+        int celebrityThreshold = Manager.DEFAULT_CELEBRITY_THRESHOLD; // Hybrid mode: followers to be pulled
+        boolean pipelined = false; // Parse, execute and write on three threads
+        int shardCount = 0; // Run on this many shards in parallel, 0 for a single Manager
+        boolean metricsOn = false; // Record per-command latencies and counters, printed at exit
+        long metricsInterval = 0; // Also print them every this many seconds, 0 for never
+        String loadSnapshotPath = null; // Start from this snapshot instead of an empty Manager
+        String saveSnapshotPath = null; // Write a snapshot here after the input is processed
+        String journalPath = null; // Recover from and append state changes to this journal
+        int journalSyncRecords = 0; // Force the journal to disk every this many records, 0 for no limit
+        long journalSyncMillis = 0; // Force the journal to disk at least this often, 0 for no limit
+        long contentMemory = Long.MAX_VALUE; // Bytes of post content kept in memory before it spills to a file
+        String contentSpillDir = null; // Directory of the spill file, the temporary directory if null
+        int seenWindow = 0; // Seen posts kept exactly per user, older ones go to a Bloom filter; 0 keeps all exactly
+        double seenFalsePositiveRate = 0.01; // False positive budget of the Bloom filter
+        long seenFilterBytes = 4096; // Bytes of Bloom filter per user
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--pipeline")) {
+                pipelined = true;
+            } else if (args[i].startsWith("--load-snapshot=")) {
+                loadSnapshotPath = args[i].substring("--load-snapshot=".length());
+            } else if (args[i].startsWith("--save-snapshot=")) {
+                saveSnapshotPath = args[i].substring("--save-snapshot=".length());
+            } else if (args[i].startsWith("--journal=")) {
+                journalPath = args[i].substring("--journal=".length());
+            } else if (args[i].startsWith("--journal-sync=")) {
+                journalSyncRecords = Integer.parseInt(args[i].substring("--journal-sync=".length()));
+            } else if (args[i].startsWith("--journal-sync-ms=")) {
+                journalSyncMillis = Long.parseLong(args[i].substring("--journal-sync-ms=".length()));
+            } else if (args[i].startsWith("--content-memory=")) {
+                contentMemory = Long.parseLong(args[i].substring("--content-memory=".length())) << 20; // In MB
+            } else if (args[i].startsWith("--content-spill-dir=")) {
+                contentSpillDir = args[i].substring("--content-spill-dir=".length());
+            } else if (args[i].startsWith("--seen-window=")) {
+                seenWindow = Integer.parseInt(args[i].substring("--seen-window=".length()));
+            } else if (args[i].startsWith("--seen-fp=")) {
+                seenFalsePositiveRate = Double.parseDouble(args[i].substring("--seen-fp=".length()));
+            } else if (args[i].startsWith("--seen-filter-bytes=")) {
+                seenFilterBytes = Long.parseLong(args[i].substring("--seen-filter-bytes=".length()));
+            } else if (args[i].equals("--metrics")) {
+                metricsOn = true;
+            } else if (args[i].startsWith("--metrics-interval=")) {
+                metricsOn = true;
+                metricsInterval = Long.parseLong(args[i].substring("--metrics-interval=".length()));
+            } else if (args[i].startsWith("--shards=")) {
+                shardCount = Integer.parseInt(args[i].substring("--shards=".length()));
+            } else if (args[i].startsWith("--celebrity-threshold=")) {
+                celebrityThreshold = Integer.parseInt(args[i].substring("--celebrity-threshold=".length()));
+            } else if (args[i].startsWith("--feed-mode=")) {
+                feedMode = FeedMode.valueOf(args[i].substring("--feed-mode=".length()).toUpperCase());
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (shardCount > 0) {
+            if (pipelined || metricsOn || loadSnapshotPath != null || saveSnapshotPath != null
+                    || journalPath != null || contentMemory != Long.MAX_VALUE || contentSpillDir != null
+                    || seenWindow > 0 || feedMode != FeedMode.PULL) {
+                throw new IllegalArgumentException("--shards only works alone, in pull feed mode");
+            }
+            ShardedManager shardedManager = new ShardedManager(shardCount);
+            long startTime = System.currentTimeMillis();
+            shardedManager.run(inputFilePath, outputFilePath);
+            long endTime = System.currentTimeMillis();
+            System.out.println("Execution Time: " + (endTime - startTime) + "ms");
+            shardedManager.printStats(System.out);
+            return;
+        }
+
+        if (seenWindow > 0 && (loadSnapshotPath != null || saveSnapshotPath != null)) {
+            throw new IllegalArgumentException("--seen-window cannot be used with snapshots, which store seen posts exactly");
+        }
+        Manager manager;
+        ContentArena contents = new ContentArena(contentMemory, contentSpillDir);
+        if (loadSnapshotPath != null) {
+            long loadStart = System.currentTimeMillis();
+            manager = Manager.loadSnapshot(loadSnapshotPath, feedMode, celebrityThreshold, contents);
+            System.out.println("Snapshot loaded in " + (System.currentTimeMillis() - loadStart) + "ms");
+        } else {
+            manager = new Manager(feedMode, celebrityThreshold, contents);
+        }
+        if (seenWindow > 0) {
+            manager.boundSeenPosts(seenWindow, seenFalsePositiveRate, seenFilterBytes);
+        }
+        Journal journal = null;
+        if (journalPath != null) {
+            // Replays what an earlier run journaled on top of the loaded state
+            journal = new Journal(journalPath, manager, journalSyncRecords, journalSyncMillis);
+        }
+        try {
+            Metrics metrics = metricsOn ? new Metrics(manager, System.out, metricsInterval * 1000) : null;
+            long startTime = System.currentTimeMillis();
+
+            if (pipelined) {
+                Pipeline pipeline = new Pipeline(manager, metrics);
+                pipeline.run(inputFilePath, outputFilePath);
+                long endTime = System.currentTimeMillis();
+                System.out.println("Execution Time: " + (endTime - startTime) + "ms");
+                pipeline.printStats(System.out);
+                if (metrics != null) {
+                    metrics.printSummary();
+                }
+                finish(manager, journal, saveSnapshotPath);
+                return;
+            }
+
+            // File handling with try-with-resources for automatic resource management
+            try (CommandParser parser = new CommandParser(inputFilePath);
+                 ChannelOutputSink out = new ChannelOutputSink(outputFilePath)) {
+
+                Command command = new Command(); // Reused for every line
+                // Read each line (command) from the memory-mapped input file
+                while (parser.next(command)) {
+                    // Write the output straight into the log buffer
+                    if (metrics != null) {
+                        metrics.execute(command, out);
+                    } else {
+                        execute(manager, command, out);
+                    }
+                    out.newLine();
+                }
+            }
+
+            long endTime = System.currentTimeMillis();
+            System.out.println("Execution Time: " + (endTime - startTime) + "ms");
+            if (metrics != null) {
+                metrics.printSummary();
+            }
+            finish(manager, journal, saveSnapshotPath);
+        } finally {
+            if (journal != null) {
+                journal.close(); // Also when a command failed, so what it journaled reaches the disk
+            }
+        }
+    }
+
+    // Sync the journal and write a snapshot of the final state, if they were asked for
+    private static void finish(Manager manager, Journal journal, String snapshotPath) throws IOException {
+        if (journal != null) {
+            journal.sync();
+            journal.printStats(System.out);
+        }
+        if (snapshotPath != null) {
+            long saveStart = System.currentTimeMillis();
+            manager.writeSnapshot(snapshotPath); // Also restarts the journal from it
+            System.out.println("Snapshot written in " + (System.currentTimeMillis() - saveStart) + "ms");
+        }
+    }
+
+    // Execute one parsed command and write its log output, without the line separator
+    public static void execute(Manager manager, Command command, OutputSink out) {
+        // Execute each command based on the input format, IDs are looked up straight from the input bytes
+        switch (command.getType()) {
+            case Command.CREATE_USER: {
+                String userId = command.token(1); // The only place a user ID becomes a String
+                if (manager.createUser(userId)) {
+                    out.append("Created user with Id ").append(userId).append('.');
+                } else {
+                    out.append("Some error occurred in create_user.");
+                }
+                break;
+            }
+
+            case Command.FOLLOW_USER: {
+                int user1 = command.userIndex(1, manager);
+                int user2 = command.userIndex(2, manager);
+                if (manager.followUser(user1, user2)) {
+                    out.append(manager.userName(user1)).append(" followed ").append(manager.userName(user2)).append('.');
+                } else {
+                    out.append("Some error occurred in follow_user.");
+                }
+                break;
+            }
+
+            case Command.UNFOLLOW_USER: {
+                int user1 = command.userIndex(1, manager);
+                int user2 = command.userIndex(2, manager);
+                if (manager.unfollowUser(user1, user2)) {
+                    out.append(manager.userName(user1)).append(" unfollowed ").append(manager.userName(user2)).append('.');
+                } else {
+                    out.append("Some error occurred in unfollow_user.");
+                }
+                break;
+            }
+
+            case Command.CREATE_POST: {
+                // Expecting format: create_post <userId> <postId> <content>
+                int user = command.userIndex(1, manager);
+                String postId = command.token(2); // The only place a post ID becomes a String
+                if (manager.createPost(user, postId, command.token(3))) {
+                    out.append(manager.userName(user)).append(" created a post with Id ").append(postId).append('.');
+                } else {
+                    out.append("Some error occurred in create_post.");
+                }
+                break;
+            }
+
+            case Command.SEE_POST: {
+                // Expecting format: see_post <userId> <postId>
+                int user = command.userIndex(1, manager);
+                int post = command.postIndex(2, manager);
+                if (manager.seePost(user, post)) {
+                    out.append(manager.userName(user)).append(" saw ").append(manager.postName(post)).append('.');
+                } else {
+                    out.append("Some error occurred in see_post.");
+                }
+                break;
+            }
+
+            case Command.SEE_ALL_POSTS: {
+                // Expecting format: see_all_posts_from_user <viewerId> <viewedId>
+                int viewer = command.userIndex(1, manager);
+                int viewed = command.userIndex(2, manager);
+                if (manager.seeAllPosts(viewer, viewed)) {
+                    out.append(manager.userName(viewer)).append(" saw all posts of ").append(manager.userName(viewed)).append('.');
+                } else {
+                    out.append("Some error occurred in see_all_posts_from_user.");
+                }
+                break;
+            }
+
+            case Command.TOGGLE_LIKE:
+                // Expecting format: toggle_like <userId> <postId>
+                manager.toggleLike(command.userIndex(1, manager), command.postIndex(2, manager), out);
+                break;
+
+            case Command.GENERATE_FEED:
+                // Expecting format: generate_feed <userId> <num>
+                try {
+                    int num = command.intToken(2);
+                    manager.generateFeed(command.userIndex(1, manager), num, out);
+                } catch (NumberFormatException e) {
+                    out.append("Some error occurred in generate_feed.");
+                }
+                break;
+
+            case Command.SCROLL_THROUGH_FEED:
+                // Expecting format: scroll_through_feed <userId> <num> <like1> <like2> ...
+                try {
+                    int user = command.userIndex(1, manager);
+                    int num = command.intToken(2);
+                    if (3 + num > command.size()) {
+                        // Not enough like flags, fail before allocating the array
+                        throw new ArrayIndexOutOfBoundsException("Missing like flags");
+                    }
+                    int[] likesArray = new int[num];
+                    for (int i = 0; i < num; i++) {
+                        likesArray[i] = command.intToken(3 + i);
+                    }
+                    manager.scrollThroughFeed(user, num, likesArray, out);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    out.append("Some error occurred in scroll_through_feed.");
+                }
+                break;
+
+            case Command.TRENDING:
+                // Expecting format: trending <k>
+                try {
+                    int k = command.intToken(1);
+                    manager.trending(k, out);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    out.append("Some error occurred in trending.");
+                }
+                break;
+
+            case Command.SORT_POSTS:
+                // Expecting format: sort_posts <userId>
+                manager.sortPosts(command.userIndex(1, manager), out);
+                break;
+
+            default:
+                out.append("Invalid command: ").append(command.token(0));
+        }
+        if (manager.journal != null) {
+            manager.journal.endCommand(); // Its records reach the OS now, a killed process keeps them
+        }
+    }
+}
@@ -0,0 +1,789 @@
+package feedmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+public class Manager {
+    public static final int DEFAULT_CELEBRITY_THRESHOLD = 1000;
+    private static final int CURSOR_PAGES = 4; // Feed cursors hold this many times the posts asked for
+
+    IdInterner userIds; // To map user IDs to dense int IDs
+    User[] users; // To store user details, indexed by int ID
+    IdInterner postIds; // To map post IDs to dense int IDs
+    Post[] posts; // To store post details, indexed by int ID
+    int arrayGrowths; // Times users or posts grew, for Metrics
+    PostIdOrder postOrder; // Order labels of the post IDs, for the sort keys
+    PostStore store; // Author, likes and sort key of each post, indexed by int ID
+    final ContentArena contents; // Post contents, outside the heap as nothing ranks by them
+    final FeedMode feedMode; // How feeds are built (pull at read time or pushed on write)
+    final int celebrityThreshold; // Hybrid mode: authors with more followers than this are pulled
+    private final ArrayList<User> feedHolders; // Push mode: users whose feed held a post being re-ranked
+    IndexedHeap trendingHeap; // Every post, ranked by likes and kept in order as likes change
+    private final CompressedBitmap feedCandidates; // Pull mode: scratch set of feed candidates
+    Metrics metrics; // Set by Metrics when --metrics is on, null otherwise
+    Journal journal; // Log of state changes, null unless --journal is on
+    int checkpoint; // Snapshots saved in this state's history, a journal names the one it continues
+    private int seenWindow; // Bounded seen tracking: posts kept exactly per user, 0 to keep every one exactly
+    private double seenFalsePositiveRate; // Bounded seen tracking: false positive budget for older posts
+    private long seenFilterBytes; // Bounded seen tracking: bytes per user for older posts
+
+    // Constructor
+    public Manager() {
+        this(FeedMode.PULL);
+    }
+
+    public Manager(FeedMode feedMode) {
+        this(feedMode, DEFAULT_CELEBRITY_THRESHOLD);
+    }
+
+    public Manager(FeedMode feedMode, int celebrityThreshold) {
+        this(feedMode, celebrityThreshold, new ContentArena());
+    }
+
+    public Manager(FeedMode feedMode, int celebrityThreshold, ContentArena contents) {
+        userIds = new IdInterner();
+        users = new User[16];
+        postIds = new IdInterner();
+        posts = new Post[16];
+        postOrder = new PostIdOrder(postIds);
+        store = new PostStore();
+        this.contents = contents;
+        this.feedMode = feedMode;
+        this.celebrityThreshold = celebrityThreshold;
+        feedHolders = new ArrayList<>();
+        trendingHeap = new IndexedHeap(store);
+        feedCandidates = new CompressedBitmap();
+    }
+
+    // Load a Manager from a snapshot written by writeSnapshot, in the given feed mode
+    public static Manager loadSnapshot(String path, FeedMode feedMode) throws IOException {
+        return loadSnapshot(path, feedMode, DEFAULT_CELEBRITY_THRESHOLD);
+    }
+
+    public static Manager loadSnapshot(String path, FeedMode feedMode, int celebrityThreshold) throws IOException {
+        return loadSnapshot(path, feedMode, celebrityThreshold, new ContentArena());
+    }
+
+    public static Manager loadSnapshot(String path, FeedMode feedMode, int celebrityThreshold,
+                                       ContentArena contents) throws IOException {
+        return Snapshot.read(path, feedMode, celebrityThreshold, contents);
+    }
+
+    // Write all users, posts and relations to a binary snapshot file
+    // under the next checkpoint, then restart the journal from it as everything journaled is in it
+    public void writeSnapshot(String path) throws IOException {
+        checkpoint++;
+        try {
+            Snapshot.write(this, path);
+        } catch (IOException | RuntimeException e) {
+            checkpoint--; // The old snapshot is still the last one
+            throw e;
+        }
+        if (journal != null) {
+            journal.reset(this);
+        }
+    }
+
+    // Keep only the window latest posts that each user created from now on saw exactly, and
+    // older ones in a Bloom filter of filterBytes at about falsePositiveRate (see SeenPosts)
+    public void boundSeenPosts(int window, double falsePositiveRate, long filterBytes) {
+        new SeenPosts(window, falsePositiveRate, filterBytes); // Throws on bad limits now, not at the next create_user
+        seenWindow = window;
+        seenFalsePositiveRate = falsePositiveRate;
+        seenFilterBytes = filterBytes;
+    }
+
+    // Get the int ID of a user, or -1 if the user does not exist
+    public int userIndex(String id) {
+        return userIds.indexOf(id);
+    }
+
+    // Get the int ID of a post, or -1 if the post does not exist
+    public int postIndex(String id) {
+        return postIds.indexOf(id);
+    }
+
+    // Get the int ID of a user ID stored as bytes, or -1 if the user does not exist
+    public int userIndex(ByteBuffer buffer, int start, int length) {
+        return userIds.indexOf(buffer, start, length);
+    }
+
+    // Get the int ID of a post ID stored as bytes, or -1 if the post does not exist
+    public int postIndex(ByteBuffer buffer, int start, int length) {
+        return postIds.indexOf(buffer, start, length);
+    }
+
+    // Get the string ID of an existing user
+    public String userName(int userIndex) {
+        return userIds.nameOf(userIndex);
+    }
+
+    // Get the string ID of an existing post
+    public String postName(int postIndex) {
+        return postIds.nameOf(postIndex);
+    }
+
+    // Get the content of an existing post, decoded from the content arena on every call
+    public String postContent(int postIndex) {
+        return contents.get(posts[postIndex].content);
+    }
+
+    boolean isUser(int userIndex) {
+        return userIndex >= 0 && userIndex < userIds.size();
+    }
+
+    boolean isPost(int postIndex) {
+        return postIndex >= 0 && postIndex < postIds.size();
+    }
+
+    // Create user
+    public boolean createUser(String id) {
+        if (journal != null) {
+            if (userIds.indexOf(id) >= 0) {
+                return false; // User already exists
+            }
+            journal.logCreateUser(id);
+        }
+        int index = userIds.add(id);
+        if (index < 0) return false; // User already exists
+        User user = new User(id, index);
+        if (seenWindow > 0) {
+            user.postSeen = new SeenPosts(seenWindow, seenFalsePositiveRate, seenFilterBytes);
+        }
+        if (feedMode != FeedMode.PULL) {
+            user.feed = new FeedIndex(store);
+        }
+        if (index == users.length) {
+            arrayGrowths++;
+            users = Arrays.copyOf(users, index * 2);
+        }
+        users[index] = user;
+        return true;
+    }
+
+    // Follow method
+    public boolean followUser(int user1id, int user2id) {
+        if (!isUser(user1id) || !isUser(user2id)) {
+            return false; // Either user does not exist
+        }
+        // Check if user is trying to follow themselves
+        if (user1id == user2id) {
+            return false; // Cannot follow itself
+        }
+        User user1 = users[user1id];
+        User user2 = users[user2id];
+        // Add user2 to user1's followed set and user1 to user2's followers set
+        if (!user1.followed.contains(user2id)) {
+            if (journal != null) {
+                journal.logFollow(user1id, user2id);
+            }
+            user1.followed.add(user2id);
+            user2.followers.add(user1id);
+            dropCursor(user1); // Built from the old followed set
+            if (isPushed(user2)) {
+                if (feedMode == FeedMode.HYBRID && user2.followers.size() > celebrityThreshold) {
+                    becomeCelebrity(user2); // Too many feeds to keep up to date, pull from now on
+                } else {
+                    // Pull the followed user's unseen posts into the feed
+                    for (IntIterator it = user2.ownPosts.iterator(); it.hasNext(); ) {
+                        int post = it.nextInt();
+                        if (isEligible(user1, post)) {
+                            user1.feed.insert(post);
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+        return false; // Already following
+    }
+    // Unfollow method
+    public boolean unfollowUser(int user1id, int user2id) {
+        if (!isUser(user1id) || !isUser(user2id)) {
+            return false; // Either user does not exist
+        }
+        User user1 = users[user1id];
+        User user2 = users[user2id];
+
+        // Remove user2 from user1's followed set and user1 from user2's followers set
+        if (user1.followed.contains(user2id)) {
+            if (journal != null) {
+                journal.logUnfollow(user1id, user2id);
+            }
+            user1.followed.remove(user2id);
+            user2.followers.remove(user1id);
+            dropCursor(user1); // Built from the old followed set
+            if (isPushed(user2)) {
+                // Drop the unfollowed user's posts from the feed
+                for (IntIterator it = user2.ownPosts.iterator(); it.hasNext(); ) {
+                    user1.feed.remove(it.nextInt());
+                }
+            } else if (user2.celebrity && user2.followers.size() < celebrityThreshold / 2) {
+                // Half the threshold, so an author near it does not switch back and forth
+                stopBeingCelebrity(user2);
+            }
+            return true;
+        }
+        return false; // Not following
+    }
+
+    // Create post
+    public boolean createPost(int userId, String postId, String content) {
+        if (!isUser(userId) || postIds.indexOf(postId) >= 0) {
+            return false; // User doesn't exist or post already exists
+        }
+        if (postIds.size() >= PostIdOrder.MAX_POSTS) {
+            return false; // No order label is left for another post
+        }
+        if (journal != null) {
+            journal.logCreatePost(userId, postId, content);
+        }
+        int index = postIds.add(postId);
+        User author = users[userId];
+        Post newPost = new Post(author.id, userId, postId, index, contents.add(content));
+        if (index == posts.length) {
+            arrayGrowths++;
+            posts = Arrays.copyOf(posts, index * 2);
+        }
+        posts[index] = newPost;
+        int labeled = postOrder.insert(index);
+        store.add(index, userId, postOrder.label(index));
+        if (labeled > 1) {
+            store.relabel(postOrder, labeled); // Neighbours in ID order were moved to make room
+        }
+        author.ownPosts.add(index);
+        queueNewPost(author, index);
+        trendingHeap.insert(index);
+        if (author.rankedPosts != null) {
+            author.rankedPosts.insert(index);
+        }
+        if (isPushed(author)) {
+            // Fan out the new post to every follower's feed
+            for (IntIterator it = author.followers.iterator(); it.hasNext(); ) {
+                users[it.nextInt()].feed.insert(index);
+            }
+        }
+        return true; // Post created successfully
+    }
+
+    public boolean seePost(int userId, int postId) {
+        if (!isUser(userId) || !isPost(postId)) {
+            return false;
+        }
+        if (journal != null) {
+            journal.logSeePost(userId, postId);
+        }
+        markSeen(users[userId], posts[postId]);
+        return true;
+    }
+
+    // Record that a user saw a post, the IDs are already checked
+    private void markSeen(User user, Post post) {
+        if (feedMode != FeedMode.PULL) {
+            user.feed.remove(post.index); // Seen posts leave the feed
+        }
+        user.postSeen.add(post.index);
+        post.whoSee.add(user.index);
+    }
+
+    public boolean seeAllPosts(int viewerId, int viewedId) {
+        if (!isUser(viewerId) || !isUser(viewedId)) {
+            return false; // Either viewer or viewed user doesn't exist
+        }
+        if (journal != null) {
+            journal.logSeeAllPosts(viewerId, viewedId);
+        }
+        User viewer = users[viewerId];
+        User viewed = users[viewedId];
+        // Traverse all posts of the viewed user
+        for (IntIterator it = viewed.ownPosts.iterator(); it.hasNext(); ) {
+            // Mark the post as seen by the viewer
+            markSeen(viewer, posts[it.nextInt()]);
+        }
+        viewer.postSeen.runOptimize(); // Whole catalogs often leave long runs of seen IDs
+        return true; // Successfully viewed all posts
+    }
+
+    public void toggleLike(int userId, int postId, OutputSink out) {
+        if (!isUser(userId) || !isPost(postId)) {
+            out.append("Some error occurred in toggle_like."); // User or post doesn't exist
+            return;
+        }
+
+        User user = users[userId];
+        Post post = posts[postId];
+        if (!user.likedPosts.contains(postId) && store.likes(postId) == PostStore.MAX_LIKES) {
+            out.append("Some error occurred in toggle_like."); // The sort key has no room for another like
+            return;
+        }
+        if (journal != null) {
+            journal.logToggleLike(userId, postId);
+        }
+
+        // If the user hasn't liked the post, add like
+        if (!user.likedPosts.contains(postId)) {
+            detachFromFeeds(postId);
+            user.likedPosts.add(postId);
+            post.whoLiked.add(userId);
+            store.like(postId);
+            staleCursors(users[post.author], null);
+            trendingHeap.increaseKey(postId);
+            markSeen(user, post);  // Liking counts as seeing the post
+            reattachToFeeds(postId);
+            out.append(user.id).append(" liked ").append(post.postId).append('.');
+        }
+
+        // If the user has already liked the post, remove like (unlike)
+        else {
+            detachFromFeeds(postId);
+            user.likedPosts.remove(postId);
+            post.whoLiked.remove(userId);
+            store.unlike(postId);
+            staleCursors(users[post.author], null);
+            trendingHeap.decreaseKey(postId);
+            reattachToFeeds(postId);
+            out.append(user.id).append(" unliked ").append(post.postId).append('.');
+        }
+    }
+
+    public void generateFeed(int userIndex, int num, OutputSink out) {
+        if (!isUser(userIndex)) {
+            out.append("Some error occurred in generate_feed.");
+            return;
+        }
+
+        User user = users[userIndex];
+        // Only the top num posts are kept, so the cost does not grow with the followed graph
+        writeFeed(user.id, selectFeed(user, num), num, out);
+    }
+
+    // Log a selected feed, shared with ShardedManager so both write the same bytes
+    static void writeFeed(String userId, Post[] feed, int num, OutputSink out) {
+        writeFeed(userId, feed, post -> post.whoLiked.size(), num, out);
+    }
+
+    // Log a selected feed with the like counts given, as they were when it was selected
+    static void writeFeed(String userId, Post[] feed, ToIntFunction<Post> likes, int num, OutputSink out) {
+        out.append("Feed for ").append(userId).append(":\n");
+        int count = 0;
+
+        // Walk the top posts (most liked first)
+        while (count < feed.length) {
+            Post post = feed[count];
+            out.append("Post ID: ").append(post.postId)
+                    .append(", Author: ").append(post.authorId)
+                    .append(", Likes: ").append(likes.applyAsInt(post))
+                    .append('\n');
+            count++;
+        }
+        // If fewer posts than requested, add a message
+        if (count < num) {
+            out.append("No more posts available for ").append(userId).append('.');
+        }
+    }
+
+
+    public void scrollThroughFeed(int userIndex, int num, int[] likes, OutputSink out) {
+        if (!isUser(userIndex)) {
+            out.append("Some error occurred in scroll_through_feed.");
+            return;
+        }
+
+        User user = users[userIndex];
+        String userId = user.id;
+        // Each later line starts with its own newline, so nothing has to be taken back at the end
+        out.append(userId).append(" is scrolling through feed:");
+        int count = 0;
+
+        // Select the top num posts before any of them is liked
+        Post[] feed = selectFeed(user, num);
+        if (user.cursor != null) {
+            user.cursor.consumeTop();
+        }
+
+        // Process the selected posts (most liked first)
+        while (count < feed.length) {
+            Post post = feed[count];
+            boolean liked = likes[count] == 1;
+            if (journal != null) {
+                journal.logScrolledPast(userIndex, post.index, liked);
+            }
+            scrollPast(user, post, liked);
+
+            // Check if the user liked the post
+            if (liked) {
+                // User liked the post
+                out.append('\n').append(userId)
+                        .append(" saw ")
+                        .append(post.postId)
+                        .append(" while scrolling and clicked the like button.");
+            } else {
+                // User did not like the post
+                out.append('\n').append(userId)
+                        .append(" saw ")
+                        .append(post.postId)
+                        .append(" while scrolling.");
+            }
+            count++;
+        }
+
+        // If not enough posts to satisfy num, log the message
+        if (count < num) {
+            out.append("\nNo more posts in feed.");
+        }
+    }
+
+    // Mark a post seen while scrolling, liking it if the user clicked the like button
+    void scrollPast(User user, Post post, boolean liked) {
+        if (feedMode != FeedMode.PULL) {
+            user.feed.remove(post.index); // Seen posts leave the feed
+        }
+        user.postSeen.add(post.index); // Mark as seen
+        if (liked) {
+            detachFromFeeds(post.index);
+            user.likedPosts.add(post.index);
+            post.whoLiked.add(user.index); // Add to post's whoLiked set
+            store.like(post.index);
+            staleCursors(users[post.author], user.cursor); // Its own cursor dropped the post before
+            trendingHeap.increaseKey(post.index);
+            reattachToFeeds(post.index);
+        }
+    }
+
+    // Get the k most liked posts of all users
+    public void trending(int k, OutputSink out) {
+        writeTrending(postsOf(trendingHeap.top(k), posts), k, out); // Read from the heap, nothing is scanned or rebuilt
+    }
+
+    // Look up the posts of int IDs, shared with ShardedManager; posts is indexed by post int ID
+    static Post[] postsOf(int[] ids, Post[] posts) {
+        Post[] result = new Post[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = posts[ids[i]];
+        }
+        return result;
+    }
+
+    // Log the k most liked posts
+    static void writeTrending(Post[] top, int k, OutputSink out) {
+        out.append("Trending posts:\n");
+        for (Post post : top) {
+            out.append("Post ID: ").append(post.postId)
+                    .append(", Author: ").append(post.authorId)
+                    .append(", Likes: ").append(post.whoLiked.size())
+                    .append('\n');
+        }
+        // If fewer posts than requested, add a message
+        if (top.length < k) {
+            out.append("No more posts available.");
+        }
+    }
+
+    // Select the top num unseen and unliked posts of followed users, most liked first
+    private Post[] selectFeed(User user, int num) {
+        if (feedMode == FeedMode.PUSH) {
+            if (metrics != null) {
+                metrics.recordFeedCandidates(user.feed.size());
+            }
+            if (user.postSeen.isExact()) {
+                return postsOf(user.feed.top(num), posts); // Already materialized in ranking order
+            }
+            // The seen filter may have come to match a post after it was pushed, drop it as pull mode would
+            TopKHeap feedHeap = new TopKHeap(num);
+            user.feed.offerUnseen(feedHeap, user.postSeen, user.likedPosts, posts);
+            return feedHeap.drainDescending();
+        }
+        if (feedMode == FeedMode.HYBRID) {
+            return selectHybridFeed(user, num);
+        }
+        if (keepsFeedCursors()) {
+            return selectCursorFeed(user, num);
+        }
+        return postsOf(selectPulledFeed(user, num).top(num, user.postSeen, user.likedPosts), posts);
+    }
+
+    // Pull mode: serve the feed from the user's cursor when it is still good, rebuild it if not
+    private Post[] selectCursorFeed(User user, int num) {
+        FeedCursor cursor = user.cursor;
+        if (cursor != null && refreshCursor(user, cursor)) {
+            int[] feed = cursor.top(num, user.postSeen, user.likedPosts);
+            if (feed != null) {
+                if (metrics != null) {
+                    metrics.recordFeedCursor(true);
+                    metrics.recordFeedCandidates(cursor.size());
+                }
+                return postsOf(feed, posts);
+            }
+        }
+        // Keep a few pages, so the next scrolls are served without another merge
+        int capacity = (int) Math.min((long) Math.max(num, 1) * CURSOR_PAGES, Integer.MAX_VALUE);
+        dropCursor(user);
+        cursor = selectPulledFeed(user, capacity);
+        user.cursor = cursor;
+        watch(user, cursor);
+        if (metrics != null) {
+            metrics.recordFeedCursor(false);
+        }
+        return postsOf(cursor.top(num, user.postSeen, user.likedPosts), posts);
+    }
+
+    // Bring a cursor up to date: merge in the followed users' new posts it was told about.
+    // Returns false when some like count that may rank its posts changed, the cursor is stale then.
+    private boolean refreshCursor(User user, FeedCursor cursor) {
+        if (cursor.isStale()) {
+            return false;
+        }
+        cursor.mergeNewPosts(store, user.postSeen, user.likedPosts);
+        return true;
+    }
+
+    // Pull mode: register a new cursor with every followed user, who keep it up to date from now on
+    private void watch(User user, FeedCursor cursor) {
+        for (IntIterator followedIt = user.followed.iterator(); followedIt.hasNext(); ) {
+            User author = users[followedIt.nextInt()];
+            if (author.cursorWatcherCount == author.cursorWatchers.length) {
+                pruneWatchers(author);
+                if (author.cursorWatcherCount >= author.cursorWatchers.length / 2) { // Grow unless half was stale
+                    int capacity = Math.max(4, author.cursorWatcherCount * 2);
+                    author.cursorWatchers = Arrays.copyOf(author.cursorWatchers, capacity);
+                }
+            }
+            author.cursorWatchers[author.cursorWatcherCount++] = cursor;
+        }
+    }
+
+    // Drop the stale cursors a user still holds, which their owners have replaced or will
+    private static void pruneWatchers(User author) {
+        FeedCursor[] watchers = author.cursorWatchers;
+        int live = 0;
+        for (int i = 0; i < author.cursorWatcherCount; i++) {
+            if (!watchers[i].isStale()) {
+                watchers[live++] = watchers[i];
+            }
+        }
+        Arrays.fill(watchers, live, author.cursorWatcherCount, null);
+        author.cursorWatcherCount = live;
+    }
+
+    // A like count of the author's posts changed: every cursor ranking them is stale, except
+    // the given one, which holds none of the liked post any more
+    private static void staleCursors(User author, FeedCursor keep) {
+        FeedCursor[] watchers = author.cursorWatchers;
+        int kept = 0;
+        for (int i = 0; i < author.cursorWatcherCount; i++) {
+            if (watchers[i] == keep) {
+                watchers[kept++] = keep;
+            } else {
+                watchers[i].invalidate();
+            }
+        }
+        Arrays.fill(watchers, kept, author.cursorWatcherCount, null);
+        author.cursorWatcherCount = kept;
+    }
+
+    // Queue the author's new post in the cursors of its followers, dropping the stale ones
+    private static void queueNewPost(User author, int post) {
+        if (author.cursorWatcherCount == 0) {
+            return;
+        }
+        pruneWatchers(author);
+        for (int i = 0; i < author.cursorWatcherCount; i++) {
+            author.cursorWatchers[i].addNewPost(post);
+        }
+    }
+
+    // Pull mode: stop using a user's cursor, its followed users let go of it as they come across it
+    private static void dropCursor(User user) {
+        if (user.cursor != null) {
+            user.cursor.invalidate();
+            user.cursor = null;
+        }
+    }
+
+    // Pull mode: select the top capacity unseen and unliked posts of followed users into a new
+    // cursor, which holds every candidate when there are no more than that
+    private FeedCursor selectPulledFeed(User user, int capacity) {
+        // Union of the followed users' posts, minus everything seen or liked, chunk by chunk
+        CompressedBitmap feedCandidates = candidateScratch();
+        feedCandidates.clear();
+        for (IntIterator followedIt = user.followed.iterator(); followedIt.hasNext(); ) {
+            feedCandidates.or(users[followedIt.nextInt()].ownPosts);
+        }
+        feedCandidates.andNot(user.postSeen.exact());
+        feedCandidates.andNot(user.likedPosts);
+        boolean bounded = !user.postSeen.isExact(); // Posts seen long ago are only in its filter
+        int candidates = feedCandidates.size();
+
+        TopKHeap feedHeap = new TopKHeap(capacity);
+        for (IntIterator it = feedCandidates.iterator(); it.hasNext(); ) {
+            int post = it.nextInt();
+            if (bounded && user.postSeen.contains(post)) {
+                candidates--;
+                continue;
+            }
+            feedHeap.offer(posts[post], store.sortKey(post)); // Kept only if it makes the cut
+        }
+        if (metrics != null) {
+            metrics.recordFeedCandidates(candidates);
+        }
+        boolean complete = candidates <= capacity;
+        feedCandidates.clear();
+        Post[] selected = feedHeap.drainDescending();
+        int[] ids = new int[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            ids[i] = selected[i].index;
+        }
+        return new FeedCursor(ids, complete);
+    }
+
+    // Merge the pushed feed with the followed celebrities' posts, each walked from its best post down
+    private Post[] selectHybridFeed(User user, int num) {
+        TopKHeap feedHeap = new TopKHeap(num);
+        int candidates = user.feed.offerUnseen(feedHeap, user.postSeen, user.likedPosts, posts);
+        for (IntIterator followedIt = user.followed.iterator(); followedIt.hasNext(); ) {
+            User author = users[followedIt.nextInt()];
+            if (author.celebrity) {
+                candidates += author.rankedPosts.offerUnseen(feedHeap, user.postSeen, user.likedPosts, posts);
+            }
+        }
+        if (metrics != null) {
+            metrics.recordFeedCandidates(candidates);
+        }
+        return feedHeap.drainDescending();
+    }
+
+    // Scratch bitmap for selectFeed, one per Manager as commands run one at a time
+    CompressedBitmap candidateScratch() {
+        return feedCandidates;
+    }
+
+    // Pull mode: whether feeds are kept in per-user cursors between reads
+    boolean keepsFeedCursors() {
+        return true;
+    }
+
+    // Check if an author's posts are pushed into the followers' feeds rather than pulled at read time
+    boolean isPushed(User author) {
+        return feedMode == FeedMode.PUSH || (feedMode == FeedMode.HYBRID && !author.celebrity);
+    }
+
+    // Hybrid mode: take an author's posts out of every follower's feed, they are pulled from now on
+    private void becomeCelebrity(User author) {
+        author.celebrity = true;
+        author.rankedPosts = new FeedIndex(store);
+        for (IntIterator it = author.ownPosts.iterator(); it.hasNext(); ) {
+            author.rankedPosts.insert(it.nextInt());
+        }
+        for (IntIterator followerIt = author.followers.iterator(); followerIt.hasNext(); ) {
+            User follower = users[followerIt.nextInt()];
+            for (IntIterator it = author.ownPosts.iterator(); it.hasNext(); ) {
+                follower.feed.remove(it.nextInt());
+            }
+        }
+    }
+
+    // Hybrid mode: push an author's unseen posts into every follower's feed again
+    private void stopBeingCelebrity(User author) {
+        author.celebrity = false;
+        author.rankedPosts = null;
+        for (IntIterator followerIt = author.followers.iterator(); followerIt.hasNext(); ) {
+            User follower = users[followerIt.nextInt()];
+            for (IntIterator it = author.ownPosts.iterator(); it.hasNext(); ) {
+                int post = it.nextInt();
+                if (isEligible(follower, post)) {
+                    follower.feed.insert(post);
+                }
+            }
+        }
+    }
+
+    // Check if a post can appear in the user's feed
+    private boolean isEligible(User user, int post) {
+        return !user.likedPosts.contains(post) && !user.postSeen.contains(post);
+    }
+
+    // Push mode: take a post out of the feeds holding it, before its like count changes
+    private void detachFromFeeds(int post) {
+        User author = users[store.author(post)];
+        if (author.rankedPosts != null) {
+            author.rankedPosts.remove(post); // Hybrid mode: a celebrity's post is ranked in one place only
+        }
+        if (!isPushed(author)) {
+            return;
+        }
+        feedHolders.clear();
+        for (IntIterator it = author.followers.iterator(); it.hasNext(); ) {
+            User follower = users[it.nextInt()];
+            if (follower.feed.remove(post)) {
+                feedHolders.add(follower);
+            }
+        }
+    }
+
+    // Push mode: put a post back at its new rank, after its like count changed
+    private void reattachToFeeds(int post) {
+        User author = users[store.author(post)];
+        if (author.rankedPosts != null) {
+            author.rankedPosts.insert(post);
+        }
+        if (!isPushed(author)) {
+            return;
+        }
+        for (User follower : feedHolders) {
+            if (isEligible(follower, post)) {
+                follower.feed.insert(post);
+            }
+        }
+        feedHolders.clear();
+    }
+
+    public void sortPosts(int userIndex, OutputSink out) {
+        // Check if the user exists
+        if (!isUser(userIndex)) {
+            out.append("Some error occurred in sort_posts.");
+            return;
+        }
+        if (metrics != null) {
+            metrics.recordSortHeapSize(users[userIndex].ownPosts.size());
+        }
+
+        writeSortedPosts(users[userIndex], posts, store, out);
+    }
+
+    // Log a user's posts, most liked first; posts and store are indexed by post int ID
+    static void writeSortedPosts(User user, Post[] posts, PostStore store, OutputSink out) {
+        // Create a CustomHeap for the user's posts
+        CustomHeap allPostsHeap = new CustomHeap();
+
+        // Insert all posts of the user into the heap
+        for (IntIterator it = user.ownPosts.iterator(); it.hasNext(); ) {
+            int post = it.nextInt();
+            allPostsHeap.insert(post, store.sortKey(post));
+        }
+        writeSortedPosts(user.id, allPostsHeap, posts, post -> post.whoLiked.size(), out);
+    }
+
+    // Log the posts in a heap of a user's posts, emptying it, with the like counts given
+    static void writeSortedPosts(String userId, CustomHeap allPostsHeap, Post[] posts, ToIntFunction<Post> likes,
+                                 OutputSink out) {
+        // Check if the user has any posts
+        if (allPostsHeap.isEmpty()) {
+            out.append("No posts from ").append(userId).append('.');
+            return;
+        }
+
+        // Log the start of sorting, each post line starts with its own newline
+        out.append("Sorting ").append(userId).append("'s posts:");
+
+        // Extract posts from the heap and append to the result
+        while (!allPostsHeap.isEmpty()) {
+            Post post = posts[allPostsHeap.extractMax()];
+            out.append('\n').append(post.postId)
+                    .append(", Likes: ")
+                    .append(likes.applyAsInt(post));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package feedmanager;
+
+import java.io.PrintStream;
+
+// Per-command latency histograms and counters for one Manager, enabled with --metrics.
+// Commands are recorded into an interval window that is folded into the totals at each
+// periodic dump and at exit. Recording does not allocate.
+public class Metrics {
+    private static final int TYPES = Command.TRENDING + 1; // Command types, INVALID included
+    private static final String ERROR_PREFIX = "Some error occurred in ";
+
+    private final Manager manager;
+    private final PrintStream report;
+    private final long intervalNanos; // 0 for no periodic dump
+    private final ErrorDetector detector = new ErrorDetector();
+    private final Window interval = new Window(); // Since the last dump
+    private final Window total = new Window(); // Everything before the last dump
+    private long startTime; // nanoTime of the first command
+    private long nextDump; // nanoTime of the next periodic dump
+
+    // Values recorded in one window
+    private static final class Window {
+        final Histogram[] latencies = new Histogram[TYPES]; // Nanoseconds per command, by type
+        final long[] errors = new long[TYPES]; // "Some error occurred" outcomes, by type
+        final Histogram feedCandidates = new Histogram(); // Posts considered per feed
+        final Histogram sortHeapSizes = new Histogram(); // Posts heaped per sort_posts
+        long cursorHits; // Pull mode feeds served from a feed cursor
+        long cursorRebuilds; // Pull mode feeds that built a new one
+
+        Window() {
+            for (int type = 0; type < TYPES; type++) {
+                latencies[type] = new Histogram();
+            }
+        }
+
+        void add(Window other) {
+            for (int type = 0; type < TYPES; type++) {
+                latencies[type].add(other.latencies[type]);
+                errors[type] += other.errors[type];
+            }
+            feedCandidates.add(other.feedCandidates);
+            sortHeapSizes.add(other.sortHeapSizes);
+            cursorHits += other.cursorHits;
+            cursorRebuilds += other.cursorRebuilds;
+        }
+
+        void reset() {
+            for (int type = 0; type < TYPES; type++) {
+                latencies[type].reset();
+                errors[type] = 0;
+            }
+            feedCandidates.reset();
+            sortHeapSizes.reset();
+            cursorHits = 0;
+            cursorRebuilds = 0;
+        }
+    }
+
+    // Passes output through and notes whether the command logged an error
+    private static final class ErrorDetector implements OutputSink {
+        private OutputSink target;
+        private boolean first; // Nothing appended yet for the current command
+        private boolean error;
+
+        void begin(OutputSink target) {
+            this.target = target;
+            this.first = true;
+            this.error = false;
+        }
+
+        @Override
+        public OutputSink append(String text) {
+            if (first) {
+                // Error messages are always appended whole, and IDs cannot hold the spaces they contain
+                first = false;
+                error = text.startsWith(ERROR_PREFIX);
+            }
+            target.append(text);
+            return this;
+        }
+
+        @Override
+        public OutputSink append(char c) {
+            first = false;
+            target.append(c);
+            return this;
+        }
+
+        @Override
+        public OutputSink append(int value) {
+            first = false;
+            target.append(value);
+            return this;
+        }
+
+        @Override
+        public OutputSink newLine() {
+            target.newLine();
+            return this;
+        }
+    }
+
+    // Report is where dumps are printed, intervalMillis is 0 for a summary at exit only
+    public Metrics(Manager manager, PrintStream report, long intervalMillis) {
+        this.manager = manager;
+        this.report = report;
+        this.intervalNanos = intervalMillis * 1_000_000;
+        manager.metrics = this;
+    }
+
+    // Execute a command like Main.execute, timing it and noting an error outcome
+    public void execute(Command command, OutputSink out) {
+        detector.begin(out);
+        long start = System.nanoTime();
+        Main.execute(manager, command, detector);
+        long end = System.nanoTime();
+
+        int type = command.getType();
+        interval.latencies[type].record(end - start);
+        if (detector.error) {
+            interval.errors[type]++;
+        }
+        if (startTime == 0) {
+            startTime = start;
+            nextDump = start + intervalNanos;
+        } else if (intervalNanos > 0 && end >= nextDump) {
+            print("Interval at " + (end - startTime) / 1_000_000 + "ms", interval);
+            total.add(interval);
+            interval.reset();
+            nextDump = end + intervalNanos;
+        }
+    }
+
+    // Called by the Manager for every feed it selects
+    void recordFeedCandidates(int count) {
+        interval.feedCandidates.record(count);
+    }
+
+    // Called by the Manager for every pull mode feed, hit is true when its feed cursor served it
+    void recordFeedCursor(boolean hit) {
+        if (hit) {
+            interval.cursorHits++;
+        } else {
+            interval.cursorRebuilds++;
+        }
+    }
+
+    // Called by the Manager for every sort_posts it runs
+    void recordSortHeapSize(int size) {
+        interval.sortHeapSizes.record(size);
+    }
+
+    // Print the totals of the whole run
+    public void printSummary() {
+        total.add(interval);
+        interval.reset();
+        print("Metrics", total);
+    }
+
+    private void print(String title, Window window) {
+        report.println(title + ":");
+        report.printf("  %-24s %10s %8s %10s %10s %10s %10s%n",
+                "Latency (us)", "count", "errors", "p50", "p99", "p99.9", "max");
+        for (int type = 0; type < TYPES; type++) {
+            Histogram latencies = window.latencies[type];
+            if (latencies.getTotalCount() == 0) {
+                continue;
+            }
+            report.printf("  %-24s %10d %8d %10.2f %10.2f %10.2f %10.2f%n", Command.nameOf(type),
+                    latencies.getTotalCount(), window.errors[type],
+                    latencies.valueAtPercentile(50) / 1000.0, latencies.valueAtPercentile(99) / 1000.0,
+                    latencies.valueAtPercentile(99.9) / 1000.0, latencies.getMax() / 1000.0);
+        }
+        printSizes("Feed candidates", window.feedCandidates);
+        printSizes("Sort heap sizes", window.sortHeapSizes);
+        report.println("  Feed cursors: " + window.cursorHits + " feeds served, " + window.cursorRebuilds + " rebuilt");
+        report.println("  Trending heap size: " + manager.trendingHeap.getSize());
+        report.println("  Post content: " + manager.contents.contentBytes() + " bytes, in "
+                + manager.contents.directBytes() + " bytes of direct segments and "
+                + manager.contents.spilledBytes() + " bytes spilled");
+        long edges = 0;
+        long graphBytes = 0;
+        for (int i = 0; i < manager.userIds.size(); i++) {
+            User user = manager.users[i];
+            edges += user.followed.size();
+            graphBytes += user.followed.bytes() + user.followers.bytes(); // Every edge is stored on both sides
+        }
+        report.println("  Follow graph: " + edges + " edges in " + graphBytes + " bytes");
+        long seenBytes = 0;
+        int pastWindow = 0;
+        for (int i = 0; i < manager.userIds.size(); i++) {
+            SeenPosts seen = manager.users[i].postSeen;
+            seenBytes += seen.bytes();
+            if (!seen.isExact()) {
+                pastWindow++;
+            }
+        }
+        report.println("  Seen posts: " + seenBytes + " bytes, " + pastWindow + " users past their exact window");
+        report.println("  Post ID relabels: " + manager.postOrder.relabels() + ", moving "
+                + manager.postOrder.relabeledPosts() + " labels");
+        report.println("  Resizes: IdInterner " + IdInterner.resizeCount()
+                + ", CompressedBitmap " + CompressedBitmap.resizeCount()
+                + ", PackedIntSet " + PackedIntSet.resizeCount()
+                + " (" + PackedIntSet.compactionCount() + " compactions)"
+                + ", user and post arrays " + manager.arrayGrowths);
+    }
+
+    private void printSizes(String name, Histogram sizes) {
+        report.println("  " + name + ": count " + sizes.getTotalCount()
+                + ", p50 " + sizes.valueAtPercentile(50) + ", p99 " + sizes.valueAtPercentile(99)
+                + ", p99.9 " + sizes.valueAtPercentile(99.9) + ", max " + sizes.getMax());
+    }
+}
@@ -0,0 +1,15 @@
+package feedmanager;
+
+public interface OutputSink {
+    // Append text to the current log entry
+    OutputSink append(String text);
+
+    // Append a single character to the current log entry
+    OutputSink append(char c);
+
+    // Append the decimal form of an int, with no String built for it
+    OutputSink append(int value);
+
+    // End the current log entry with the platform line separator
+    OutputSink newLine();
+}
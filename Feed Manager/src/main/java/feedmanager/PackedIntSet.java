@@ -0,0 +1,300 @@
+package feedmanager;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Set of non-negative ints for the follow graph, one row of a compressed sparse row layout.
+// The bulk of the set is packed: the elements in ascending order as varint deltas, a byte or two
+// per element for most rows, with the value and byte offset of every SKIP-th element so a lookup
+// decodes at most SKIP deltas. Changes since the last compaction sit in two small sorted overlays,
+// elements added and packed elements removed, and are merged into a new packed row once the
+// overlays grow past a fraction of it, so a write never re-encodes the row on its own.
+// Iteration merges the packed row with the overlays and is in ascending order.
+// Lookups and iteration only read its fields, never cache or compact anything, so any number of
+// threads may read a set at once while none writes it; ConcurrentManager's stripe locks see to that.
+public class PackedIntSet {
+    private static final int SKIP = 64; // Elements between skip entries
+    private static final int MIN_OVERLAY = 16; // Overlay entries always allowed before a compaction
+    private static final int MAX_OVERLAY = 4096; // Overlay entries never exceeded, bounds insertion shifts
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final AtomicLong resizes = new AtomicLong(); // Array growths of all instances, for Metrics
+    private static final AtomicLong compactions = new AtomicLong(); // Overlay merges of all instances, for Metrics
+
+    private byte[] packed = NO_BYTES; // Varint deltas of the packed elements, ascending
+    private int packedBytes; // Bytes of packed in use
+    private int packedCount; // Number of packed elements, removed ones included
+    private int last = -1; // Largest packed element, -1 if none
+    private int[] skipValues = NO_INTS; // Value of packed element i * SKIP
+    private int[] skipOffsets = NO_INTS; // Byte offset of packed element i * SKIP
+    private int[] added = NO_INTS; // Sorted elements not in the packed row
+    private int addedCount;
+    private int[] removed = NO_INTS; // Sorted packed elements no longer in the set
+    private int removedCount;
+    private int modCount; // Changes, for fail-fast iteration
+
+    public PackedIntSet() {
+    }
+
+    public boolean add(int element) {
+        if (element < 0) {
+            throw new IllegalArgumentException("negative value");
+        }
+
+        if (element > last && addedCount == 0 && removedCount == 0) {
+            append(element); // Past the end of a clean row, as in a bulk load in ascending order
+            modCount++;
+            return true;
+        }
+        int index = Arrays.binarySearch(removed, 0, removedCount, element);
+        if (index >= 0) {
+            removedCount = delete(removed, removedCount, index); // Packed again
+            modCount++;
+            return true;
+        }
+        if (packedContains(element)) {
+            return false;
+        }
+        index = Arrays.binarySearch(added, 0, addedCount, element);
+        if (index >= 0) {
+            return false;
+        }
+        added = insert(added, addedCount++, -index - 1, element);
+        modCount++;
+        compactIfFull();
+        return true;
+    }
+
+    public boolean remove(int element) {
+        if (element < 0) {
+            return false;
+        }
+
+        int index = Arrays.binarySearch(added, 0, addedCount, element);
+        if (index >= 0) {
+            addedCount = delete(added, addedCount, index);
+            modCount++;
+            return true;
+        }
+        if (!packedContains(element)) {
+            return false;
+        }
+        index = Arrays.binarySearch(removed, 0, removedCount, element);
+        if (index >= 0) {
+            return false; // Already removed
+        }
+        removed = insert(removed, removedCount++, -index - 1, element);
+        modCount++;
+        compactIfFull();
+        return true;
+    }
+
+    public boolean contains(int element) {
+        if (element < 0) {
+            return false;
+        }
+
+        if (Arrays.binarySearch(added, 0, addedCount, element) >= 0) {
+            return true;
+        }
+        return packedContains(element) && Arrays.binarySearch(removed, 0, removedCount, element) < 0;
+    }
+
+    public int size() {
+        return packedCount - removedCount + addedCount;
+    }
+
+    // Number of times any instance has grown one of its arrays
+    public static long resizeCount() {
+        return resizes.get();
+    }
+
+    // Number of times any instance has merged its overlays into a new packed row
+    public static long compactionCount() {
+        return compactions.get();
+    }
+
+    // Bytes held by the arrays of this set, for Metrics
+    public long bytes() {
+        return packed.length + 4L * (skipValues.length + skipOffsets.length + added.length + removed.length);
+    }
+
+    // Check the packed row only, starting from the last skip entry at or below the element
+    private boolean packedContains(int element) {
+        if (element > last) {
+            return false;
+        }
+        int skip = Arrays.binarySearch(skipValues, 0, (packedCount + SKIP - 1) / SKIP, element);
+        if (skip >= 0) {
+            return true;
+        }
+        skip = -skip - 2; // Entry below the insertion point
+        if (skip < 0) {
+            return false; // Smaller than the first element
+        }
+        int offset = skipOffsets[skip];
+        int value = skipValues[skip];
+        offset = skipVarInt(offset); // The entry's own delta, its value is already known
+        int end = Math.min(packedCount, (skip + 1) * SKIP);
+        for (int i = skip * SKIP + 1; i < end; i++) {
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = packed[offset++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            value += delta;
+            if (value >= element) {
+                return value == element;
+            }
+        }
+        return false;
+    }
+
+    private int skipVarInt(int offset) {
+        while (packed[offset++] < 0) {
+            // Continuation bytes have the high bit set
+        }
+        return offset;
+    }
+
+    // Append an element larger than every packed one to the packed row
+    private void append(int element) {
+        if (packedBytes + 5 > packed.length) {
+            resizes.incrementAndGet();
+            packed = Arrays.copyOf(packed, Math.max(16, packed.length * 2));
+        }
+        if (packedCount % SKIP == 0) {
+            int entry = packedCount / SKIP;
+            if (entry == skipValues.length) {
+                resizes.incrementAndGet();
+                skipValues = Arrays.copyOf(skipValues, Math.max(4, entry * 2));
+                skipOffsets = Arrays.copyOf(skipOffsets, skipValues.length);
+            }
+            skipValues[entry] = element;
+            skipOffsets[entry] = packedBytes;
+        }
+        int delta = element - Math.max(last, 0);
+        while ((delta & ~0x7F) != 0) {
+            packed[packedBytes++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        packed[packedBytes++] = (byte) delta;
+        packedCount++;
+        last = element;
+    }
+
+    // Merge the overlays into a new packed row once they hold a sizable share of the set
+    private void compactIfFull() {
+        int overlay = addedCount + removedCount;
+        if (overlay < MIN_OVERLAY || (overlay < MAX_OVERLAY && overlay < packedCount / 8)) {
+            return;
+        }
+        compactions.incrementAndGet();
+        int count = size();
+        int[] elements = new int[count];
+        int i = 0;
+        for (IntIterator it = iterator(); it.hasNext(); ) {
+            elements[i++] = it.nextInt();
+        }
+        packed = new byte[packedBytes + 5 * addedCount];
+        packedBytes = 0;
+        packedCount = 0;
+        last = -1;
+        skipValues = new int[(count + SKIP - 1) / SKIP];
+        skipOffsets = new int[skipValues.length];
+        addedCount = 0;
+        removedCount = 0;
+        added = NO_INTS;
+        removed = NO_INTS;
+        for (int element : elements) {
+            append(element);
+        }
+        packed = Arrays.copyOf(packed, packedBytes); // Trimmed, rows are mostly read from now on
+    }
+
+    private static int[] insert(int[] array, int count, int index, int element) {
+        if (count == array.length) {
+            resizes.incrementAndGet();
+            array = Arrays.copyOf(array, Math.max(4, count * 2));
+        }
+        System.arraycopy(array, index, array, index + 1, count - index);
+        array[index] = element;
+        return array;
+    }
+
+    private static int delete(int[] array, int count, int index) {
+        System.arraycopy(array, index + 1, array, index, count - index - 1);
+        return count - 1;
+    }
+
+    public IntIterator iterator() {
+        return new PackedIntSetIterator();
+    }
+
+    // Merges the packed row with the added overlay, skipping removed elements
+    private class PackedIntSetIterator implements IntIterator {
+        private int offset; // Next byte of packed
+        private int decoded; // Packed elements decoded so far
+        private int packedValue; // Last decoded packed element
+        private int nextPacked = -1; // Next packed element not removed, -1 if none left
+        private int addedIndex;
+        private int removedIndex;
+        private final int expectedModCount = modCount;
+
+        PackedIntSetIterator() {
+            advancePacked();
+        }
+
+        private void advancePacked() {
+            while (decoded < packedCount) {
+                int delta = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = packed[offset++];
+                    delta |= (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                packedValue += delta;
+                decoded++;
+                while (removedIndex < removedCount && removed[removedIndex] < packedValue) {
+                    removedIndex++;
+                }
+                if (removedIndex == removedCount || removed[removedIndex] != packedValue) {
+                    nextPacked = packedValue;
+                    return;
+                }
+            }
+            nextPacked = -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return nextPacked >= 0 || addedIndex < addedCount;
+        }
+
+        @Override
+        public int nextInt() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (addedIndex < addedCount && (nextPacked < 0 || added[addedIndex] < nextPacked)) {
+                return added[addedIndex++];
+            }
+            if (nextPacked < 0) {
+                throw new NoSuchElementException("No more elements");
+            }
+            int element = nextPacked;
+            advancePacked();
+            return element;
+        }
+    }
+}
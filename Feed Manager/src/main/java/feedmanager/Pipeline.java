@@ -0,0 +1,220 @@
+package feedmanager;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Runs the command loop as three threads: parse -> execute -> write.
+// Parsed commands and formatted output move between the threads through
+// SpscRings, so each stage works while the others wait on disk or the Manager.
+public class Pipeline {
+    private static final int COMMAND_SLOTS = 4096; // Parsed commands in flight
+    private static final int OUTPUT_CHUNKS = 16; // Output chunks in flight
+    private static final int CHUNK_SIZE = 1 << 16; // Bytes per output chunk
+
+    private final Manager manager;
+    private final Metrics metrics; // Null unless --metrics is on
+    private final SpscRing<Command> commands = new SpscRing<>(COMMAND_SLOTS, Command::new);
+    private final SpscRing<ByteBuffer> output =
+            new SpscRing<>(OUTPUT_CHUNKS, () -> ByteBuffer.allocateDirect(CHUNK_SIZE));
+
+    // Per-stage figures, each written by its own thread and read after the join
+    private final Stage parseStage = new Stage();
+    private final Stage executeStage = new Stage();
+    private final Stage writeStage = new Stage();
+    private long bytesWritten;
+
+    public Pipeline(Manager manager) {
+        this(manager, null);
+    }
+
+    // Commands go through metrics when it is not null, so their latencies are recorded
+    public Pipeline(Manager manager, Metrics metrics) {
+        this.manager = manager;
+        this.metrics = metrics;
+    }
+
+    public void run(String inputFilePath, String outputFilePath) throws IOException {
+        try (CommandParser parser = new CommandParser(inputFilePath);
+             FileChannel channel = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            Thread parseThread = new Thread(() -> parse(parser), "parse");
+            Thread executeThread = new Thread(this::execute, "execute");
+            Thread writeThread = new Thread(() -> write(channel), "write");
+            parseThread.start();
+            executeThread.start();
+            writeThread.start();
+            try {
+                parseThread.join();
+                executeThread.join();
+                writeThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the pipeline", e);
+            }
+        }
+        // Report the first failure, in pipeline order
+        rethrow(parseStage.failure);
+        rethrow(executeStage.failure);
+        rethrow(writeStage.failure);
+    }
+
+    // Parse stage: fill command slots straight from the mapped input
+    private void parse(CommandParser parser) {
+        parseStage.start();
+        try {
+            while (parser.next(commands.claim())) {
+                commands.publish();
+                parseStage.items++;
+            }
+        } catch (Throwable e) {
+            parseStage.failure = e;
+        } finally {
+            commands.close();
+            parseStage.finish();
+        }
+    }
+
+    // Execute stage: run each command against the Manager and format its output into chunks
+    private void execute() {
+        executeStage.start();
+        RingOutputSink out = new RingOutputSink();
+        try {
+            while (true) {
+                Command command = commands.poll();
+                if (command == null) {
+                    // Nothing parsed yet, let the writer have what is ready instead of holding it
+                    out.handOff();
+                    command = commands.take();
+                    if (command == null) {
+                        break;
+                    }
+                }
+                if (metrics != null) {
+                    metrics.execute(command, out);
+                } else {
+                    Main.execute(manager, command, out);
+                }
+                out.newLine();
+                commands.release();
+                executeStage.items++;
+            }
+            out.handOff();
+        } catch (Throwable e) {
+            // Stop like the serial loop would, but keep what was already written
+            executeStage.failure = e;
+            out.handOff();
+            while (commands.take() != null) {
+                commands.release(); // Drain so the parser is not left waiting on a full ring
+            }
+        } finally {
+            output.close();
+            executeStage.finish();
+        }
+    }
+
+    // Write stage: drain output chunks to the file
+    private void write(FileChannel channel) {
+        writeStage.start();
+        ByteBuffer chunk;
+        while ((chunk = output.take()) != null) {
+            chunk.flip();
+            if (writeStage.failure == null) {
+                try {
+                    bytesWritten += chunk.remaining();
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                } catch (Throwable e) {
+                    writeStage.failure = e; // Keep draining so the executor is not left waiting
+                }
+            }
+            chunk.clear();
+            output.release();
+            writeStage.items++;
+        }
+        writeStage.finish();
+    }
+
+    public void printStats(PrintStream stream) {
+        stream.println("Parse stage: " + parseStage.items + " commands in " + parseStage.millis() + "ms ("
+                + parseStage.perSecond(parseStage.items) + " commands/s), "
+                + commands.producerStalls + " stalls on a full command ring");
+        stream.println("Execute stage: " + executeStage.items + " commands in " + executeStage.millis() + "ms ("
+                + executeStage.perSecond(executeStage.items) + " commands/s), "
+                + commands.consumerStalls + " stalls on an empty command ring, "
+                + output.producerStalls + " stalls on a full output ring");
+        stream.println("Write stage: " + bytesWritten + " bytes in " + writeStage.items + " chunks in "
+                + writeStage.millis() + "ms (" + writeStage.perSecond(bytesWritten) + " bytes/s), "
+                + output.consumerStalls + " stalls on an empty output ring");
+    }
+
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException(failure);
+    }
+
+    // Timing and item count of one stage
+    private static class Stage {
+        long startNanos;
+        long endNanos;
+        long items;
+        Throwable failure;
+
+        void start() {
+            startNanos = System.nanoTime();
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        long millis() {
+            return (endNanos - startNanos) / 1_000_000;
+        }
+
+        long perSecond(long count) {
+            long nanos = Math.max(1, endNanos - startNanos);
+            return (long) (count * 1e9 / nanos);
+        }
+    }
+
+    // Sink that fills output chunks and hands each full one to the write stage
+    private class RingOutputSink extends ByteBufferOutputSink {
+        RingOutputSink() {
+            super(output.claim());
+        }
+
+        @Override
+        protected void drain() {
+            output.publish();
+            buffer = output.claim();
+        }
+
+        // Publish the current chunk if it holds anything
+        void handOff() {
+            if (buffer.position() > 0) {
+                drain();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package feedmanager;
+
+public class Post {
+    public String postId; // id
+    public int index; // dense int id of the post
+    public String authorId; // author  id
+    public int author; // dense int id of the author
+    public long content; // handle of the post's content in the Manager's ContentArena
+    public CompressedBitmap whoLiked; // to store  user ids who liked that post
+    public CompressedBitmap  whoSee; // to store user ids who saw that post
+
+    // Constructor
+    public Post(String authorId, int author, String postId, int index, long content){
+        whoLiked = new CompressedBitmap();
+        whoSee = new CompressedBitmap();
+       this.postId = postId;
+       this.index = index;
+       this.authorId = authorId;
+       this.author = author;
+       this.content = content;
+    }
+}
@@ -0,0 +1,201 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+// Order labels of post IDs: every post gets a label below 2^LABEL_BITS, and labels compare
+// the way the post IDs do, so a ranking tie is broken by comparing two longs, not two Strings.
+// A treap over the IDs finds where a new ID goes and a linked list keeps the posts in ID order.
+// A new post takes the middle of the gap between its neighbours' labels. When there is no gap,
+// the smallest aligned label range around it that is sparse enough (a range of 2^i labels
+// holding at most (2 / DENSITY)^i posts) is spread out evenly, as in Bender et al., "Two
+// simplified algorithms for maintaining order in a list". That relabels O(log n) posts per
+// insert, amortized. Up to MAX_POSTS posts always fit, as the whole label range is then sparse
+// enough; Manager refuses to create more.
+public class PostIdOrder {
+    public static final int LABEL_BITS = 40;
+    private static final long LABEL_LIMIT = 1L << LABEL_BITS;
+    private static final double DENSITY = 1.25; // Leaves room for about 1.4 * 10^8 posts
+    public static final int MAX_POSTS = (int) Math.pow(2 / DENSITY, LABEL_BITS); // 146,150,163
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final IdInterner ids; // Post int ID -> post ID, for the treap comparisons
+    private long[] labels; // Post int ID -> label
+    private int[] prev; // Post int ID -> previous post in ID order, -1 for the first
+    private int[] next; // Post int ID -> next post in ID order, -1 for the last
+    private int[] left; // Treap children, -1 for none
+    private int[] right;
+    private int[] priority; // Treap heap priority
+    private int root = -1;
+    private int head = -1; // First post in ID order
+    private int seed = 0x2545F491; // State of the priority generator
+    private int insertPredecessor; // Set by insert: the post that precedes the new one, -1 if none
+    private int relabeledFrom; // First post of the run relabeled by the last insert
+
+    // Figures for Metrics
+    private long relabels;
+    private long relabeledPosts;
+
+    public PostIdOrder(IdInterner ids) {
+        this(ids, 0);
+    }
+
+    // Sized so posts with int IDs below capacity fit without growing
+    public PostIdOrder(IdInterner ids, int capacity) {
+        this.ids = ids;
+        capacity = Math.max(DEFAULT_CAPACITY, capacity);
+        labels = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        priority = new int[capacity];
+    }
+
+    // Add a post whose ID is already interned. Returns how many posts got a new label, the new
+    // one included: the run of that many posts in ID order starting at relabeledFrom()
+    public int insert(int post) {
+        if (post >= labels.length) {
+            grow(Math.max(labels.length * 2, post + 1));
+        }
+        left[post] = -1;
+        right[post] = -1;
+        priority[post] = nextPriority();
+        insertPredecessor = -1;
+        root = insert(root, post, ids.nameOf(post));
+
+        // Link the post into the list after its predecessor
+        int before = insertPredecessor;
+        int after = before >= 0 ? next[before] : head;
+        prev[post] = before;
+        next[post] = after;
+        if (before >= 0) {
+            next[before] = post;
+        } else {
+            head = post;
+        }
+        if (after >= 0) {
+            prev[after] = post;
+        }
+
+        long low = before >= 0 ? labels[before] : -1;
+        long high = after >= 0 ? labels[after] : LABEL_LIMIT;
+        if (high - low >= 2) {
+            labels[post] = low + (high - low) / 2;
+            relabeledFrom = post;
+            return 1;
+        }
+        return relabel(post, before >= 0 ? low : high);
+    }
+
+    // Get the label of a post
+    public long label(int post) {
+        return labels[post];
+    }
+
+    // Get the post after a post in ID order, -1 after the last
+    public int next(int post) {
+        return next[post];
+    }
+
+    // First post of the run relabeled by the last insert
+    public int relabeledFrom() {
+        return relabeledFrom;
+    }
+
+    // Number of inserts that relabeled other posts
+    public long relabels() {
+        return relabels;
+    }
+
+    // Number of posts that got a new label in those inserts, not counting the new posts
+    public long relabeledPosts() {
+        return relabeledPosts;
+    }
+
+    // Spread out the smallest sparse enough range around a post that has no gap to its neighbours.
+    // The post temporarily shares the anchor label of a neighbour, so it falls into every range tried.
+    private int relabel(int post, long anchor) {
+        labels[post] = anchor;
+        int first = post; // Run of posts whose labels lie in the range
+        int last = post;
+        int count = 1;
+        for (int bits = 1; bits <= LABEL_BITS; bits++) {
+            long start = anchor & -(1L << bits);
+            long end = start + (1L << bits);
+            while (prev[first] >= 0 && labels[prev[first]] >= start) {
+                first = prev[first];
+                count++;
+            }
+            while (next[last] >= 0 && labels[next[last]] < end) {
+                last = next[last];
+                count++;
+            }
+            if (count <= Math.pow(2 / DENSITY, bits)) {
+                long step = (1L << bits) / count;
+                long label = start;
+                for (int p = first; ; p = next[p]) {
+                    labels[p] = label;
+                    label += step;
+                    if (p == last) {
+                        break;
+                    }
+                }
+                relabeledFrom = first;
+                relabels++;
+                relabeledPosts += count - 1;
+                return count;
+            }
+        }
+        throw new IllegalStateException("Too many posts to label: " + count);
+    }
+
+    private int insert(int node, int post, String id) {
+        if (node < 0) {
+            return post;
+        }
+        if (id.compareTo(ids.nameOf(node)) < 0) {
+            left[node] = insert(left[node], post, id);
+            if (priority[left[node]] > priority[node]) {
+                node = rotateRight(node);
+            }
+        } else {
+            insertPredecessor = node; // Every later node on the way down has a larger ID still
+            right[node] = insert(right[node], post, id);
+            if (priority[right[node]] > priority[node]) {
+                node = rotateLeft(node);
+            }
+        }
+        return node;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        return pivot;
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        return pivot;
+    }
+
+    private void grow(int capacity) {
+        labels = Arrays.copyOf(labels, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+    }
+
+    // Xorshift generator, deterministic so runs are reproducible
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
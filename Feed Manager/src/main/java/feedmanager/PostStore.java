@@ -0,0 +1,88 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+// The per-post values that ranking reads, as columns indexed by post int ID, so feeds and
+// heaps rank posts without touching Post objects or their like sets.
+// A post's sort key packs its like count above the order label of its post ID:
+//   likes << PostIdOrder.LABEL_BITS | label
+// so comparing two keys compares likes first and post IDs second, which is the post ranking.
+// That leaves room for MAX_LIKES likes per post; Manager refuses a like past it.
+public class PostStore {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long LABEL_MASK = (1L << PostIdOrder.LABEL_BITS) - 1;
+    private static final long ONE_LIKE = 1L << PostIdOrder.LABEL_BITS;
+    public static final int MAX_LIKES = (int) (Long.MAX_VALUE >>> PostIdOrder.LABEL_BITS); // 8,388,607, keys stay positive
+
+    private long[] keys; // Post int ID -> sort key
+    private int[] authors; // Post int ID -> author int ID
+
+    public PostStore() {
+        this(0);
+    }
+
+    // Sized so posts with int IDs below capacity fit without growing
+    public PostStore(int capacity) {
+        capacity = Math.max(DEFAULT_CAPACITY, capacity);
+        keys = new long[capacity];
+        authors = new int[capacity];
+    }
+
+    // Add a post without likes, labeled by a PostIdOrder
+    public void add(int post, int author, long label) {
+        if (post >= keys.length) {
+            int capacity = Math.max(keys.length * 2, post + 1);
+            keys = Arrays.copyOf(keys, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+        }
+        keys[post] = label;
+        authors[post] = author;
+    }
+
+    // Copy the labels of the run of posts the last PostIdOrder.insert relabeled
+    public void relabel(PostIdOrder order, int count) {
+        int post = order.relabeledFrom();
+        for (int i = 0; i < count; i++) {
+            relabel(post, order.label(post));
+            post = order.next(post);
+        }
+    }
+
+    // Give a post a new label, which must keep its place among the other labels
+    public void relabel(int post, long label) {
+        if (post < keys.length) {
+            keys[post] = (keys[post] & ~LABEL_MASK) | label;
+        }
+    }
+
+    public long sortKey(int post) {
+        return keys[post];
+    }
+
+    public int likes(int post) {
+        return (int) (keys[post] >>> PostIdOrder.LABEL_BITS);
+    }
+
+    public int author(int post) {
+        return authors[post];
+    }
+
+    public void like(int post) {
+        if (likes(post) == MAX_LIKES) {
+            throw new IllegalStateException("Too many likes to rank post " + post);
+        }
+        keys[post] += ONE_LIKE;
+    }
+
+    public void unlike(int post) {
+        keys[post] -= ONE_LIKE;
+    }
+
+    // Set the like count outright, when loading a snapshot
+    public void setLikes(int post, int likes) {
+        if (likes > MAX_LIKES) {
+            throw new IllegalStateException("Too many likes to rank post " + post);
+        }
+        keys[post] = (long) likes << PostIdOrder.LABEL_BITS | (keys[post] & LABEL_MASK);
+    }
+}
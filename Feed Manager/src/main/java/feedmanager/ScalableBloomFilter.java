@@ -0,0 +1,119 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+// Bloom filter of ints that adds stages as it fills, so it needs no element count up front.
+// Stage i holds initialCapacity << i elements at a false positive rate of
+// falsePositiveRate / 2^(i+1), so all stages together stay below falsePositiveRate.
+// Stages are only added while the filter fits in maxBytes. After that the last stage takes
+// every further element, and the false positive rate climbs past the budget instead.
+public class ScalableBloomFilter {
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+    private static final long[][] NO_STAGES = new long[0][];
+
+    private final int initialCapacity; // Elements of the first stage
+    private final double falsePositiveRate; // Budget of all stages together
+    private final long maxBytes; // Bytes of bit arrays the filter may hold
+    private long[][] stages = NO_STAGES; // Bit array of each stage
+    private int[] hashes = new int[0]; // Bits set per element in each stage
+    private long lastCapacity; // Elements the last stage was sized for
+    private long lastCount; // Elements added to the last stage
+    private long count; // Elements added to every stage
+    private long bytes; // Bytes of all bit arrays
+
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate, long maxBytes) {
+        if (initialCapacity < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1) || maxBytes < 8) {
+            throw new IllegalArgumentException("Bloom filter needs a capacity, a rate in (0, 1) and 8 bytes or more");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBytes = maxBytes;
+    }
+
+    public void add(int element) {
+        if (stages.length == 0 || (lastCount >= lastCapacity && bytes + 8 <= maxBytes)) {
+            addStage();
+        }
+        long[] bits = stages[stages.length - 1];
+        long size = 64L * bits.length;
+        long hash = mix(element);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1; // Odd, so the probes do not repeat early
+        for (int i = 0, k = hashes[stages.length - 1]; i < k; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        lastCount++;
+        count++;
+    }
+
+    // False if the element was never added, true if it was or, rarely, if it was not
+    public boolean mightContain(int element) {
+        long hash = mix(element);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int s = 0; s < stages.length; s++) {
+            long[] bits = stages[s];
+            long size = 64L * bits.length;
+            boolean all = true;
+            for (int i = 0, k = hashes[s]; i < k && all; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+                all = (bits[(int) (bit >>> 6)] & 1L << bit) != 0;
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Bytes of the bit arrays
+    public long bytes() {
+        return bytes;
+    }
+
+    public ScalableBloomFilter copy() {
+        ScalableBloomFilter copy = new ScalableBloomFilter(initialCapacity, falsePositiveRate, maxBytes);
+        copy.stages = new long[stages.length][];
+        for (int s = 0; s < stages.length; s++) {
+            copy.stages[s] = stages[s].clone();
+        }
+        copy.hashes = hashes.clone();
+        copy.lastCapacity = lastCapacity;
+        copy.lastCount = lastCount;
+        copy.count = count;
+        copy.bytes = bytes;
+        return copy;
+    }
+
+    // Add the next stage, cut down to the bytes left if it does not fit whole
+    private void addStage() {
+        int stage = stages.length;
+        long capacity = (long) initialCapacity << Math.min(stage, 32);
+        double rate = falsePositiveRate / Math.pow(2, stage + 1);
+        long words = (long) Math.ceil(capacity * -Math.log(rate) / LN2_SQUARED / 64);
+        words = Math.max(1, Math.min(words, (maxBytes - bytes) / 8));
+        words = Math.min(words, Integer.MAX_VALUE - 8); // Largest array the JVM allocates
+        stages = Arrays.copyOf(stages, stage + 1);
+        stages[stage] = new long[(int) words];
+        hashes = Arrays.copyOf(hashes, stage + 1);
+        // Optimal for the bits the stage got, which is fewer than asked for when it was cut
+        hashes[stage] = (int) Math.max(1, Math.min(16, Math.round(64.0 * words / capacity * Math.log(2))));
+        lastCapacity = capacity;
+        lastCount = 0;
+        bytes += 8 * words;
+    }
+
+    // Spread the bits of an int over a long, the two halves hash independently enough
+    private static long mix(int element) {
+        long hash = element * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
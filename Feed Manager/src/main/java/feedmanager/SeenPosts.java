@@ -0,0 +1,83 @@
+package feedmanager;
+
+// Posts a user has seen. Exact by default: every one of them is in a CompressedBitmap.
+// Bounded, only the window most recently seen posts are kept exactly, in the bitmap and in a
+// ring of the order they were seen in, and older ones move to a ScalableBloomFilter of at
+// most filterBytes. contains never misses a seen post then, but takes an unseen one for seen
+// at about falsePositiveRate (more once the filter is full), which only hides it from feeds.
+// A user's seen set is then capped at about 6 bytes per window entry plus filterBytes.
+public class SeenPosts {
+    private final CompressedBitmap exact = new CompressedBitmap(); // Every seen post, or the window of the latest
+    private final int[] window; // Bounded: the posts in exact in the order seen, a ring; null when exact
+    private int windowStart; // Oldest post of the ring once it is full
+    private final ScalableBloomFilter older; // Bounded: posts that left the window; null when exact
+
+    public SeenPosts() {
+        window = null;
+        older = null;
+    }
+
+    public SeenPosts(int window, double falsePositiveRate, long filterBytes) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Seen window must hold at least one post: " + window);
+        }
+        this.window = new int[window];
+        older = new ScalableBloomFilter(window, falsePositiveRate, filterBytes);
+    }
+
+    private SeenPosts(SeenPosts other) {
+        exact.or(other.exact);
+        window = other.window == null ? null : other.window.clone();
+        windowStart = other.windowStart;
+        older = other.older == null ? null : other.older.copy();
+    }
+
+    // Add a post, returns false if it was already in the exact set
+    public boolean add(int post) {
+        if (!exact.add(post)) {
+            return false;
+        }
+        if (window != null) {
+            int size = exact.size();
+            if (size <= window.length) {
+                window[size - 1] = post;
+            } else {
+                int oldest = window[windowStart]; // Full, the oldest post moves to the filter
+                exact.remove(oldest);
+                older.add(oldest);
+                window[windowStart] = post;
+                windowStart = windowStart + 1 == window.length ? 0 : windowStart + 1;
+            }
+        }
+        return true;
+    }
+
+    // True if the post was seen, or in bounded mode, rarely, if it was not
+    public boolean contains(int post) {
+        return exact.contains(post) || (older != null && older.mightContain(post));
+    }
+
+    // The posts certainly seen: all of them while isExact
+    public CompressedBitmap exact() {
+        return exact;
+    }
+
+    // No post has left the window, so exact() holds every seen post
+    public boolean isExact() {
+        return older == null || older.isEmpty();
+    }
+
+    public void runOptimize() {
+        exact.runOptimize();
+    }
+
+    // Approximate bytes held, for Metrics
+    public long bytes() {
+        return exact.sizeInBytes() + (window == null ? 0 : 4L * window.length + older.bytes());
+    }
+
+    // A copy that later changes to this set do not reach
+    public SeenPosts copy() {
+        return new SeenPosts(this);
+    }
+}
@@ -0,0 +1,167 @@
+package feedmanager;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+
+// Serves Main's command protocol on a local socket, to any number of clients at once.
+// Each connection is a session on its own thread, virtual when the runtime has them, and
+// every session runs its commands against one shared ConcurrentManager.
+// A session sends command lines exactly as in an input file, and may send many before
+// reading any answer. Each command is answered in order with the text Main logs for it,
+// then a line holding a single '.', which no log line can be, so clients can split answers.
+// A line that makes the command fail is answered "Some error occurred in <command>." and the
+// session goes on.
+// Addresses are "unix:PATH" for a Unix domain socket, or "[HOST:]PORT" for TCP on the
+// loopback interface unless a host is given.
+public class Server {
+    private static final int BUFFER_SIZE = 1 << 16; // Initial bytes of a session's input and output buffers
+    private static final int BACKLOG = 4096; // Connections waiting to be accepted
+
+    private final ConcurrentManager manager;
+    private final SocketAddress address;
+    private final ThreadFactory sessionThreads = sessionThreadFactory();
+
+    public Server(ConcurrentManager manager, SocketAddress address) {
+        this.manager = manager;
+        this.address = address;
+    }
+
+    // Parse an address given as "unix:PATH" or "[HOST:]PORT"
+    public static SocketAddress parseAddress(String spec) {
+        if (spec.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(spec.substring("unix:".length()));
+        }
+        int colon = spec.lastIndexOf(':');
+        String host = colon < 0 ? "localhost" : spec.substring(0, colon);
+        return new InetSocketAddress(host, Integer.parseInt(spec.substring(colon + 1)));
+    }
+
+    // Accept connections until the process is stopped
+    public void run() throws IOException {
+        ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress) {
+            removeStaleSocket((UnixDomainSocketAddress) address);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        try (server) {
+            server.bind(address, BACKLOG);
+            System.out.println("Listening on " + server.getLocalAddress());
+            while (true) {
+                SocketChannel client = server.accept();
+                sessionThreads.newThread(() -> serve(client)).start();
+            }
+        }
+    }
+
+    // Delete a socket file left at the path by an earlier run, so it can be bound again.
+    // Anything else there is kept: a file that is not a socket, or a socket a server still accepts on
+    private static void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        Path path = address.getPath();
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+        if ((mode & 0170000) != 0140000) { // File type bits, S_IFSOCK
+            throw new IOException(path + " exists and is not a socket, not replacing it");
+        }
+        try (SocketChannel probe = SocketChannel.open(address)) {
+            throw new IOException("A server is already listening on " + path);
+        } catch (ConnectException e) {
+            Files.delete(path); // Nothing accepts on it, it was left by an earlier run
+        }
+    }
+
+    // Run one session: every complete line read is executed, and the answers go out together
+    // before the next read, so a client that pipelines gets them in as few writes as it sent
+    private void serve(SocketChannel client) {
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteArrayOutputSink out = new ByteArrayOutputSink(BUFFER_SIZE);
+        Command command = new Command(); // Reused for every line
+        boolean skipNewline = false; // The last line ended in \r, a \n right after it belongs to it
+        try (client) {
+            while (true) {
+                boolean open = client.read(in) >= 0;
+                in.flip();
+                int start = 0;
+                for (int i = 0; i < in.limit(); i++) {
+                    byte b = in.get(i);
+                    if (b == '\n' && skipNewline && i == start) {
+                        start = i + 1; // Second half of \r\n
+                    } else if (b == '\n' || b == '\r') {
+                        execute(in, start, i, command, out);
+                        start = i + 1;
+                    }
+                    skipNewline = b == '\r';
+                }
+                if (!open && start < in.limit()) {
+                    execute(in, start, in.limit(), command, out); // Last line, with no terminator
+                    start = in.limit();
+                }
+                if (out.length() > 0) {
+                    ByteBuffer answers = ByteBuffer.wrap(out.array(), 0, out.length());
+                    while (answers.hasRemaining()) {
+                        client.write(answers);
+                    }
+                    out.reset();
+                }
+                if (!open) {
+                    return;
+                }
+                // Keep the unfinished line, in a larger buffer if it fills this one
+                in.position(start);
+                if (start == 0 && in.limit() == in.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                    larger.put(in);
+                    in = larger;
+                } else {
+                    in.compact();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away, nothing else shares the session
+        }
+    }
+
+    private void execute(ByteBuffer in, int start, int end, Command command, ByteArrayOutputSink out) {
+        int answerStart = out.length();
+        try {
+            CommandParser.tokenize(in, start, end, command);
+            Main.execute(manager, command, out);
+        } catch (RuntimeException e) {
+            // A malformed line, such as missing arguments: drop its partial answer, keep the session
+            out.truncate(answerStart);
+            out.append("Some error occurred in ").append(command.size() > 0 ? command.token(0) : "").append('.');
+        }
+        out.newLine().append('.').newLine();
+    }
+
+    // Virtual threads where the runtime has them (Java 21), platform threads otherwise.
+    // Looked up reflectively, as the build targets Java 17.
+    private static ThreadFactory sessionThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "session-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return task -> {
+                Thread thread = new Thread(task, "session");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
@@ -0,0 +1,792 @@
+package feedmanager;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Runs the command loop on N shards in parallel and logs exactly what Main logs.
+// Users are spread over the shards by hashing their int ID, and each post lives on its
+// author's shard. The router (the calling thread) parses the input, answers everything
+// that only depends on which IDs exist, and hands the rest to the shards:
+//   - a command that touches one shard goes to that shard's queue only;
+//   - follow, unfollow, see_post and toggle_like across two shards are split into two
+//     halves, one per shard, as each side can update and decide on its own state;
+//   - see_all_posts_from_user, generate_feed, scroll_through_feed and trending need a
+//     consistent view of several shards, so every shard involved stops at the command
+//     and the last one to arrive runs it.
+// Each command gets a sequence number and writes its output to that slot of a reorder
+// buffer, which the writer thread drains to the log in input order.
+// The router also labels the post IDs in order for the sort keys. When a new post moves the
+// labels of others, the new labels go to every shard ahead of the create_post.
+public class ShardedManager {
+    private static final int MAX_SHARDS = 64; // One bit per shard in a shard set
+    private static final int TASK_SLOTS = 4096; // Tasks queued per shard
+    private static final int OUTPUT_SLOTS = 1 << 14; // Commands in flight between the router and the writer
+    private static final int OUTPUT_SLOT_SIZE = 128; // Initial bytes of an output slot
+
+    // Which side of a command a task runs
+    private static final int FIRST = 1; // The acting user's side
+    private static final int SECOND = 2; // The other user's or the post's side
+    private static final int BOTH = FIRST | SECOND;
+
+    private static final int RELABEL = -1; // Task type of new post ID labels, not a command
+
+    // Router state, only touched by the router thread
+    private final IdInterner userIds = new IdInterner();
+    private final IdInterner postIds = new IdInterner();
+    private int[] postShard = new int[16]; // Shard of each post's author
+    private final PostIdOrder postOrder = new PostIdOrder(postIds);
+    private long[] followedShards = new long[16]; // Shards of everyone a user ever followed, a superset of today's
+    private long nextSeq; // Sequence number of the next command
+    private final Task pending = new Task(); // The command being routed, copied into each shard's task slot
+
+    private final Shard[] shards;
+
+    // Reorder buffer, slot seq & (OUTPUT_SLOTS - 1) holds the output of command seq
+    private final ByteArrayOutputSink[] outputSlots = new ByteArrayOutputSink[OUTPUT_SLOTS];
+    private final AtomicLongArray completed = new AtomicLongArray(OUTPUT_SLOTS); // Command whose output is ready in each slot
+    private final AtomicLong written = new AtomicLong(); // Commands written to the log so far
+    private volatile long total = Long.MAX_VALUE; // Number of commands, known once the router is done
+    private Throwable writeFailure;
+
+    // How commands were routed, for the stats
+    private long routerOnly;
+    private long local;
+    private long split;
+    private long coordinated;
+
+    public ShardedManager(int shardCount) {
+        if (shardCount < 1 || shardCount > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS + ": " + shardCount);
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        for (int i = 0; i < OUTPUT_SLOTS; i++) {
+            outputSlots[i] = new ByteArrayOutputSink(OUTPUT_SLOT_SIZE);
+            completed.set(i, -1);
+        }
+    }
+
+    public void run(String inputFilePath, String outputFilePath) throws IOException {
+        Throwable failure = null;
+        try (CommandParser parser = new CommandParser(inputFilePath);
+             ChannelOutputSink log = new ChannelOutputSink(outputFilePath)) {
+
+            Thread[] threads = new Thread[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                threads[i] = new Thread(shards[i], "shard-" + i);
+                threads[i].start();
+            }
+            Thread writeThread = new Thread(() -> write(log), "write");
+            writeThread.start();
+
+            Command command = new Command(); // Reused for every line
+            try {
+                while (parser.next(command)) {
+                    route(command);
+                }
+            } catch (Throwable e) {
+                failure = e; // Stop like the serial loop would, after logging every earlier command
+            }
+            total = nextSeq;
+            for (Shard shard : shards) {
+                shard.tasks.close();
+            }
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                writeThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the shards", e);
+            }
+        }
+        rethrow(failure);
+        for (Shard shard : shards) {
+            rethrow(shard.failure);
+        }
+        rethrow(writeFailure);
+    }
+
+    public void printStats(PrintStream stream) {
+        long commands = routerOnly + local + split + coordinated;
+        stream.println("Shards: " + shards.length + ", commands: " + commands + " (" + routerOnly + " answered by the router, "
+                + local + " on one shard, " + split + " split across two, " + coordinated + " coordinated)");
+        for (int i = 0; i < shards.length; i++) {
+            stream.println("Shard " + i + ": " + shards[i].executed + " tasks, " + shards[i].barrierWaits + " barrier waits");
+        }
+    }
+
+    // Shard of a user, also the shard of every post the user wrote
+    private int shardOf(int userIndex) {
+        int h = userIndex * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0x7fffffff) % shards.length;
+    }
+
+    private User userAt(int userIndex) {
+        return shards[shardOf(userIndex)].users[userIndex];
+    }
+
+    // Router: parse one command, answer it or hand it to the shards. Mirrors Main.execute.
+    private void route(Command command) {
+        long seq = nextSeq;
+        // Wait until the writer has freed this command's output slot
+        int idle = 0;
+        while (seq - written.get() >= OUTPUT_SLOTS) {
+            idle = SpscRing.backOff(idle);
+        }
+        ByteArrayOutputSink out = outputSlots[(int) seq & (OUTPUT_SLOTS - 1)];
+        pending.clear();
+        pending.type = command.getType();
+        pending.seq = seq;
+        boolean answered = true; // Whether the router wrote the output itself
+
+        switch (command.getType()) {
+            case Command.CREATE_USER: {
+                String userId = command.token(1);
+                int index = userIds.add(userId);
+                if (index < 0) {
+                    out.append("Some error occurred in create_user.");
+                    break;
+                }
+                if (index == followedShards.length) {
+                    followedShards = Arrays.copyOf(followedShards, index * 2);
+                }
+                pending.user = index;
+                pending.id = userId;
+                sendLocal(shardOf(index), false);
+                out.append("Created user with Id ").append(userId).append('.');
+                break;
+            }
+
+            case Command.FOLLOW_USER: {
+                int user1 = command.indexOf(1, userIds);
+                int user2 = command.indexOf(2, userIds);
+                if (user1 < 0 || user2 < 0 || user1 == user2) {
+                    out.append("Some error occurred in follow_user.");
+                    break;
+                }
+                followedShards[user1] |= 1L << shardOf(user2);
+                pending.user = user1;
+                pending.other = user2;
+                pending.id = userIds.nameOf(user1);
+                pending.otherId = userIds.nameOf(user2);
+                sendPair(shardOf(user1), shardOf(user2));
+                answered = false;
+                break;
+            }
+
+            case Command.UNFOLLOW_USER: {
+                int user1 = command.indexOf(1, userIds);
+                int user2 = command.indexOf(2, userIds);
+                if (user1 < 0 || user2 < 0) {
+                    out.append("Some error occurred in unfollow_user.");
+                    break;
+                }
+                pending.user = user1;
+                pending.other = user2;
+                pending.id = userIds.nameOf(user1);
+                pending.otherId = userIds.nameOf(user2);
+                sendPair(shardOf(user1), shardOf(user2));
+                answered = false;
+                break;
+            }
+
+            case Command.CREATE_POST: {
+                int user = command.indexOf(1, userIds);
+                String postId = command.token(2);
+                String content = command.token(3);
+                if (user < 0 || postIds.indexOf(postId) >= 0) {
+                    out.append("Some error occurred in create_post.");
+                    break;
+                }
+                int index = postIds.add(postId);
+                if (index == postShard.length) {
+                    postShard = Arrays.copyOf(postShard, index * 2);
+                }
+                postShard[index] = shardOf(user);
+                int labeled = postOrder.insert(index);
+                if (labeled > 1) {
+                    sendRelabel(labeled);
+                }
+                pending.label = postOrder.label(index);
+                pending.user = user;
+                pending.post = index;
+                pending.id = postId;
+                pending.content = content;
+                sendLocal(postShard[index], false);
+                out.append(userIds.nameOf(user)).append(" created a post with Id ").append(postId).append('.');
+                break;
+            }
+
+            case Command.SEE_POST: {
+                int user = command.indexOf(1, userIds);
+                int post = command.indexOf(2, postIds);
+                if (user < 0 || post < 0) {
+                    out.append("Some error occurred in see_post.");
+                    break;
+                }
+                pending.user = user;
+                pending.post = post;
+                pending.postShard = postShard[post];
+                sendPair(shardOf(user), postShard[post]);
+                out.append(userIds.nameOf(user)).append(" saw ").append(postIds.nameOf(post)).append('.');
+                break;
+            }
+
+            case Command.SEE_ALL_POSTS: {
+                int viewer = command.indexOf(1, userIds);
+                int viewed = command.indexOf(2, userIds);
+                if (viewer < 0 || viewed < 0) {
+                    out.append("Some error occurred in see_all_posts_from_user.");
+                    break;
+                }
+                pending.user = viewer;
+                pending.other = viewed;
+                sendCoordinated(1L << shardOf(viewer) | 1L << shardOf(viewed), false);
+                out.append(userIds.nameOf(viewer)).append(" saw all posts of ").append(userIds.nameOf(viewed)).append('.');
+                break;
+            }
+
+            case Command.TOGGLE_LIKE: {
+                int user = command.indexOf(1, userIds);
+                int post = command.indexOf(2, postIds);
+                if (user < 0 || post < 0) {
+                    out.append("Some error occurred in toggle_like.");
+                    break;
+                }
+                pending.user = user;
+                pending.post = post;
+                pending.postShard = postShard[post];
+                pending.id = userIds.nameOf(user);
+                pending.otherId = postIds.nameOf(post);
+                sendPair(shardOf(user), postShard[post]);
+                answered = false;
+                break;
+            }
+
+            case Command.GENERATE_FEED: {
+                int user;
+                int num;
+                try {
+                    num = command.intToken(2);
+                    user = command.indexOf(1, userIds);
+                } catch (NumberFormatException e) {
+                    out.append("Some error occurred in generate_feed.");
+                    break;
+                }
+                if (user < 0) {
+                    out.append("Some error occurred in generate_feed.");
+                    break;
+                }
+                pending.user = user;
+                pending.num = num;
+                sendCoordinated(1L << shardOf(user) | followedShards[user], true);
+                answered = false;
+                break;
+            }
+
+            case Command.SCROLL_THROUGH_FEED: {
+                int user;
+                int num;
+                int[] likesArray;
+                try {
+                    user = command.indexOf(1, userIds);
+                    num = command.intToken(2);
+                    if (3 + num > command.size()) {
+                        // Not enough like flags, fail before allocating the array
+                        throw new ArrayIndexOutOfBoundsException("Missing like flags");
+                    }
+                    likesArray = new int[num];
+                    for (int i = 0; i < num; i++) {
+                        likesArray[i] = command.intToken(3 + i);
+                    }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    out.append("Some error occurred in scroll_through_feed.");
+                    break;
+                }
+                if (user < 0) {
+                    out.append("Some error occurred in scroll_through_feed.");
+                    break;
+                }
+                pending.user = user;
+                pending.num = num;
+                pending.likes = likesArray;
+                sendCoordinated(1L << shardOf(user) | followedShards[user], true);
+                answered = false;
+                break;
+            }
+
+            case Command.TRENDING: {
+                int k;
+                try {
+                    k = command.intToken(1);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    out.append("Some error occurred in trending.");
+                    break;
+                }
+                pending.num = k;
+                sendCoordinated(-1L >>> (MAX_SHARDS - shards.length), true); // Every shard holds trending posts
+                answered = false;
+                break;
+            }
+
+            case Command.SORT_POSTS: {
+                int user = command.indexOf(1, userIds);
+                if (user < 0) {
+                    out.append("Some error occurred in sort_posts.");
+                    break;
+                }
+                pending.user = user;
+                sendLocal(shardOf(user), true);
+                answered = false;
+                break;
+            }
+
+            default:
+                out.append("Invalid command: ").append(command.token(0));
+        }
+
+        if (!pending.sent) {
+            routerOnly++;
+        }
+        if (answered) {
+            completed.set((int) seq & (OUTPUT_SLOTS - 1), seq);
+        }
+        nextSeq = seq + 1;
+    }
+
+    // Run the pending command on one shard
+    private void sendLocal(int shard, boolean output) {
+        send(shard, BOTH, output, null);
+        local++;
+    }
+
+    // Run the pending command on the first side's shard and the second side's shard, each doing its own half
+    private void sendPair(int firstShard, int secondShard) {
+        boolean output = pending.type != Command.SEE_POST; // see_post is answered by the router
+        if (firstShard == secondShard) {
+            sendLocal(firstShard, output);
+            return;
+        }
+        send(firstShard, FIRST, output, null);
+        send(secondShard, SECOND, false, null);
+        split++;
+    }
+
+    // Stop every shard in the set at the pending command, and let the last one to arrive run it
+    private void sendCoordinated(long shardSet, boolean output) {
+        if (Long.bitCount(shardSet) == 1) {
+            sendLocal(Long.numberOfTrailingZeros(shardSet), output);
+            return;
+        }
+        Barrier barrier = new Barrier(Long.bitCount(shardSet));
+        for (long rest = shardSet; rest != 0; rest &= rest - 1) {
+            send(Long.numberOfTrailingZeros(rest), BOTH, output, barrier);
+        }
+        coordinated++;
+    }
+
+    // Give every shard the labels of the run of posts the last insert relabeled.
+    // Queued ahead of the command that caused it, so no later task sees the old labels.
+    private void sendRelabel(int count) {
+        int[] relabeled = new int[count];
+        long[] labels = new long[count];
+        int post = postOrder.relabeledFrom();
+        for (int i = 0; i < count; i++) {
+            relabeled[i] = post;
+            labels[i] = postOrder.label(post);
+            post = postOrder.next(post);
+        }
+        for (Shard shard : shards) {
+            Task task = shard.tasks.claim();
+            task.type = RELABEL;
+            task.role = BOTH;
+            task.output = false;
+            task.barrier = null;
+            task.relabeled = relabeled;
+            task.labels = labels;
+            shard.tasks.publish();
+        }
+    }
+
+    private void send(int shard, int role, boolean output, Barrier barrier) {
+        SpscRing<Task> tasks = shards[shard].tasks;
+        Task task = tasks.claim();
+        task.copyOf(pending);
+        task.role = role;
+        task.output = output;
+        task.barrier = barrier;
+        tasks.publish();
+        pending.sent = true;
+    }
+
+    // Writer: copy each command's output to the log as soon as all earlier ones are written
+    private void write(ChannelOutputSink log) {
+        long next = 0;
+        while (true) {
+            int slot = (int) next & (OUTPUT_SLOTS - 1);
+            int idle = 0;
+            while (completed.get(slot) != next) {
+                if (next >= total) {
+                    return;
+                }
+                idle = SpscRing.backOff(idle);
+            }
+            ByteArrayOutputSink out = outputSlots[slot];
+            if (writeFailure == null) {
+                try {
+                    log.put(out.array(), 0, out.length());
+                    log.newLine();
+                } catch (Throwable e) {
+                    writeFailure = e; // Keep draining so the router is not left waiting
+                }
+            }
+            out.reset();
+            written.lazySet(++next);
+        }
+    }
+
+    // Shard: run one task, with the shards it reads from and writes to already settled
+    private void execute(Task task, Shard shard, OutputSink out) {
+        switch (task.type) {
+            case Command.CREATE_USER:
+                shard.addUser(new User(task.id, task.user));
+                break;
+
+            case Command.CREATE_POST: {
+                User author = shard.users[task.user];
+                Post post = new Post(author.id, task.user, task.id, task.post, shard.contents.add(task.content));
+                shard.addPost(post);
+                shard.store.add(post.index, task.user, task.label);
+                author.ownPosts.add(post.index);
+                shard.trendingHeap.insert(post.index);
+                break;
+            }
+
+            case RELABEL:
+                // Posts of other shards are relabeled too, harmlessly: their keys are only read on their own shard
+                for (int i = 0; i < task.relabeled.length; i++) {
+                    shard.store.relabel(task.relabeled[i], task.labels[i]);
+                }
+                break;
+
+            case Command.FOLLOW_USER:
+                if ((task.role & FIRST) != 0) {
+                    User user1 = userAt(task.user);
+                    if (user1.followed.contains(task.other)) {
+                        out.append("Some error occurred in follow_user.");
+                    } else {
+                        user1.followed.add(task.other);
+                        out.append(task.id).append(" followed ").append(task.otherId).append('.');
+                    }
+                }
+                if ((task.role & SECOND) != 0) {
+                    // followers mirrors followed, so this side reaches the same decision
+                    userAt(task.other).followers.add(task.user);
+                }
+                break;
+
+            case Command.UNFOLLOW_USER:
+                if ((task.role & FIRST) != 0) {
+                    User user1 = userAt(task.user);
+                    if (user1.followed.contains(task.other)) {
+                        user1.followed.remove(task.other);
+                        out.append(task.id).append(" unfollowed ").append(task.otherId).append('.');
+                    } else {
+                        out.append("Some error occurred in unfollow_user.");
+                    }
+                }
+                if ((task.role & SECOND) != 0) {
+                    userAt(task.other).followers.remove(task.user);
+                }
+                break;
+
+            case Command.SEE_POST:
+                if ((task.role & FIRST) != 0) {
+                    userAt(task.user).postSeen.add(task.post);
+                }
+                if ((task.role & SECOND) != 0) {
+                    shards[task.postShard].posts[task.post].whoSee.add(task.user);
+                }
+                break;
+
+            case Command.SEE_ALL_POSTS: {
+                User viewer = userAt(task.user);
+                Shard viewedShard = shards[shardOf(task.other)];
+                for (IntIterator it = viewedShard.users[task.other].ownPosts.iterator(); it.hasNext(); ) {
+                    int post = it.nextInt();
+                    viewer.postSeen.add(post);
+                    viewedShard.posts[post].whoSee.add(task.user);
+                }
+                viewer.postSeen.runOptimize();
+                break;
+            }
+
+            case Command.TOGGLE_LIKE:
+                if ((task.role & FIRST) != 0) {
+                    User user = userAt(task.user);
+                    if (!user.likedPosts.contains(task.post)) {
+                        user.likedPosts.add(task.post);
+                        user.postSeen.add(task.post); // Liking counts as seeing the post
+                        out.append(task.id).append(" liked ").append(task.otherId).append('.');
+                    } else {
+                        user.likedPosts.remove(task.post);
+                        out.append(task.id).append(" unliked ").append(task.otherId).append('.');
+                    }
+                }
+                if ((task.role & SECOND) != 0) {
+                    // whoLiked mirrors likedPosts, so this side reaches the same decision
+                    Shard postShard = shards[task.postShard];
+                    Post post = postShard.posts[task.post];
+                    if (!post.whoLiked.contains(task.user)) {
+                        post.whoLiked.add(task.user);
+                        postShard.store.like(task.post);
+                        postShard.trendingHeap.increaseKey(task.post);
+                        post.whoSee.add(task.user);
+                    } else {
+                        post.whoLiked.remove(task.user);
+                        postShard.store.unlike(task.post);
+                        postShard.trendingHeap.decreaseKey(task.post);
+                    }
+                }
+                break;
+
+            case Command.GENERATE_FEED: {
+                User user = userAt(task.user);
+                Manager.writeFeed(user.id, selectFeed(user, task.num, shard.feedCandidates), task.num, out);
+                break;
+            }
+
+            case Command.SCROLL_THROUGH_FEED:
+                scrollThroughFeed(userAt(task.user), task.num, task.likes, shard.feedCandidates, out);
+                break;
+
+            case Command.TRENDING: {
+                // The global top k is among the top k of each shard
+                TopKHeap top = new TopKHeap(task.num);
+                for (Shard each : shards) {
+                    for (int post : each.trendingHeap.top(task.num)) {
+                        top.offer(each.posts[post], each.store.sortKey(post));
+                    }
+                }
+                Manager.writeTrending(top.drainDescending(), task.num, out);
+                break;
+            }
+
+            case Command.SORT_POSTS:
+                Manager.writeSortedPosts(shard.users[task.user], shard.posts, shard.store, out);
+                break;
+
+            default:
+                throw new IllegalStateException("Unexpected task type " + task.type);
+        }
+    }
+
+    // Top num unseen and unliked posts of followed users, gathered from their shards
+    private Post[] selectFeed(User user, int num, CompressedBitmap candidates) {
+        TopKHeap feedHeap = new TopKHeap(num);
+        for (IntIterator followedIt = user.followed.iterator(); followedIt.hasNext(); ) {
+            int followed = followedIt.nextInt();
+            Shard owner = shards[shardOf(followed)];
+            // A post has one author, so the followed users' candidate sets never overlap
+            candidates.clear();
+            candidates.or(owner.users[followed].ownPosts);
+            candidates.andNot(user.postSeen.exact()); // Exact, bounded seen tracking is not sharded
+            candidates.andNot(user.likedPosts);
+            for (IntIterator it = candidates.iterator(); it.hasNext(); ) {
+                int post = it.nextInt();
+                feedHeap.offer(owner.posts[post], owner.store.sortKey(post));
+            }
+        }
+        candidates.clear();
+        return feedHeap.drainDescending();
+    }
+
+    // Same steps and log as Manager.scrollThroughFeed in pull mode
+    private void scrollThroughFeed(User user, int num, int[] likes, CompressedBitmap candidates, OutputSink out) {
+        String userId = user.id;
+        out.append(userId).append(" is scrolling through feed:");
+        Post[] feed = selectFeed(user, num, candidates);
+        int count = 0;
+        while (count < feed.length) {
+            Post post = feed[count];
+            user.postSeen.add(post.index); // Mark as seen
+            if (likes[count] == 1) {
+                user.likedPosts.add(post.index);
+                post.whoLiked.add(user.index);
+                Shard owner = shards[shardOf(post.author)];
+                owner.store.like(post.index);
+                owner.trendingHeap.increaseKey(post.index);
+                out.append('\n').append(userId)
+                        .append(" saw ")
+                        .append(post.postId)
+                        .append(" while scrolling and clicked the like button.");
+            } else {
+                out.append('\n').append(userId)
+                        .append(" saw ")
+                        .append(post.postId)
+                        .append(" while scrolling.");
+            }
+            count++;
+        }
+        if (count < num) {
+            out.append("\nNo more posts in feed.");
+        }
+    }
+
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException(failure);
+    }
+
+    // One command, or one half of it, as queued for a shard
+    private static class Task {
+        int type; // Command type
+        int role; // FIRST, SECOND or BOTH
+        boolean output; // Whether running the task writes the command's output
+        boolean sent; // Router only: the command was queued on at least one shard
+        long seq; // Sequence number of the command
+        int user; // Acting user
+        int other; // Other user
+        int post; // Post, with its author's shard
+        int postShard;
+        long label; // Order label of a new post's ID
+        int num; // Feed size or k
+        int[] likes; // Like flags of scroll_through_feed
+        String id; // New ID, or the acting user's ID for the log
+        String otherId; // Other user's or post's ID for the log
+        String content; // Content of a new post
+        Barrier barrier; // Set when several shards stop for the command
+        int[] relabeled; // RELABEL: posts with new labels
+        long[] labels; // RELABEL: their labels
+
+        void clear() {
+            sent = false;
+            likes = null;
+            relabeled = null;
+            labels = null;
+            id = null;
+            otherId = null;
+            content = null;
+            barrier = null;
+        }
+
+        void copyOf(Task task) {
+            type = task.type;
+            seq = task.seq;
+            user = task.user;
+            other = task.other;
+            post = task.post;
+            postShard = task.postShard;
+            label = task.label;
+            num = task.num;
+            likes = task.likes;
+            id = task.id;
+            otherId = task.otherId;
+            content = task.content;
+        }
+    }
+
+    // Meeting point of the shards that stop for one command
+    private static class Barrier {
+        final AtomicInteger waiting; // Shards that have not arrived yet
+        volatile boolean done; // Set once the command has run
+
+        Barrier(int shards) {
+            waiting = new AtomicInteger(shards);
+        }
+    }
+
+    private class Shard implements Runnable {
+        User[] users = new User[16]; // Indexed by user int ID, only this shard's users are set
+        Post[] posts = new Post[16]; // Indexed by post int ID, only this shard's posts are set
+        final PostStore store = new PostStore(); // Sort keys of this shard's posts
+        final ContentArena contents = new ContentArena(); // Contents of this shard's posts
+        final IndexedHeap trendingHeap = new IndexedHeap(store); // This shard's posts by likes
+        final CompressedBitmap feedCandidates = new CompressedBitmap(); // Scratch set for feeds this thread runs
+        final SpscRing<Task> tasks = new SpscRing<>(TASK_SLOTS, Task::new);
+        long executed; // Tasks taken from the queue
+        long barrierWaits; // Times this shard waited for others at a barrier
+        Throwable failure;
+
+        @Override
+        public void run() {
+            Task task;
+            while ((task = tasks.take()) != null) {
+                try {
+                    if (task.barrier == null) {
+                        runTask(task, this);
+                    } else if (task.barrier.waiting.decrementAndGet() == 0) {
+                        // Last to arrive: every other shard involved is waiting, run the command for all
+                        try {
+                            runTask(task, this);
+                        } finally {
+                            task.barrier.done = true;
+                        }
+                    } else {
+                        barrierWaits++;
+                        int idle = 0;
+                        while (!task.barrier.done) {
+                            idle = SpscRing.backOff(idle);
+                        }
+                    }
+                } catch (Throwable e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+                task.clear(); // Do not keep the command's objects alive in the ring
+                tasks.release();
+                executed++;
+            }
+        }
+
+        void addUser(User user) {
+            if (user.index >= users.length) {
+                users = Arrays.copyOf(users, Math.max(users.length * 2, user.index + 1));
+            }
+            users[user.index] = user;
+        }
+
+        void addPost(Post post) {
+            if (post.index >= posts.length) {
+                posts = Arrays.copyOf(posts, Math.max(posts.length * 2, post.index + 1));
+            }
+            posts[post.index] = post;
+        }
+    }
+
+    // Run a task and, if it answers the command, publish its output slot even when it fails
+    private void runTask(Task task, Shard shard) {
+        int slot = (int) task.seq & (OUTPUT_SLOTS - 1);
+        try {
+            execute(task, shard, outputSlots[slot]);
+        } finally {
+            if (task.output) {
+                completed.set(slot, task.seq);
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package feedmanager;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Binary snapshot of a Manager's state: users, posts with their content, and every relation set.
+// Layout, all integers as unsigned LEB128 varints unless noted:
+//   MAGIC (4 bytes), VERSION, checkpoint (version 2 on), user count, post count
+//   per user: ID
+//   per post: author int ID, post ID, content
+//   per user: followed, followers (count + IDs), own posts, seen posts, liked posts (bitmaps)
+//   per post: liked by, seen by (bitmaps)
+//   MAGIC again, so a truncated file is detected
+// Strings are a byte length and UTF-8 bytes; bitmaps are a count and ascending deltas.
+// Feed mode is not stored: trending heap, push feeds and post sort keys are rebuilt from the relations.
+class Snapshot {
+    private static final int MAGIC = 0x464D534E; // "FMSN"
+    private static final int VERSION = 2; // Version 1 has no checkpoint, it is read as checkpoint 0
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long WINDOW_SIZE = 1L << 30; // Bytes mapped at a time when loading
+
+    private Snapshot() {
+    }
+
+    // Written to path + ".tmp" and moved over path once on disk, so a crash leaves the old snapshot whole
+    static void write(Manager manager, String path) throws IOException {
+        int userCount = manager.userIds.size();
+        int postCount = manager.postIds.size();
+        Path target = Paths.get(path);
+        Path temporary = Paths.get(path + ".tmp");
+        FileOutputStream file = new FileOutputStream(temporary.toFile());
+        try (Writer out = new Writer(new BufferedOutputStream(file, BUFFER_SIZE))) {
+            out.writeFixedInt(MAGIC);
+            out.writeVarInt(VERSION);
+            out.writeVarInt(manager.checkpoint);
+            out.writeVarInt(userCount);
+            out.writeVarInt(postCount);
+            for (int i = 0; i < userCount; i++) {
+                out.writeString(manager.users[i].id);
+            }
+            for (int i = 0; i < postCount; i++) {
+                Post post = manager.posts[i];
+                out.writeVarInt(post.author);
+                out.writeString(post.postId);
+                out.writeBytes(manager.contents.bytes(post.content)); // Copied as stored, never decoded
+            }
+            for (int i = 0; i < userCount; i++) {
+                User user = manager.users[i];
+                out.writeSet(user.followed);
+                out.writeSet(user.followers);
+                out.writeBitmap(user.ownPosts);
+                if (!user.postSeen.isExact()) {
+                    throw new IllegalStateException("Seen posts of " + user.id + " are bounded, a snapshot needs them exact");
+                }
+                out.writeBitmap(user.postSeen.exact());
+                out.writeBitmap(user.likedPosts);
+            }
+            for (int i = 0; i < postCount; i++) {
+                Post post = manager.posts[i];
+                out.writeBitmap(post.whoLiked);
+                out.writeBitmap(post.whoSee);
+            }
+            out.writeFixedInt(MAGIC);
+            out.flush();
+            file.getFD().sync(); // On disk before it replaces the old one
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(target); // The move itself on disk before a journal may be reset to start from it
+    }
+
+    // Force a directory entry change to disk, where the platform allows opening a directory
+    private static void syncDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not possible on every platform (Windows), the rename is then as durable as the OS makes it
+        }
+    }
+
+    static Manager read(String path, FeedMode feedMode, int celebrityThreshold, ContentArena contents)
+            throws IOException {
+        try (Reader in = new Reader(path)) {
+            if (in.readFixedInt() != MAGIC) {
+                throw new IOException("Not a snapshot: " + path);
+            }
+            int version = in.readVarInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            int checkpoint = version >= 2 ? in.readVarInt() : 0;
+            int userCount = in.readVarInt();
+            int postCount = in.readVarInt();
+
+            // Every table is allocated at its final size up front
+            Manager manager = new Manager(feedMode, celebrityThreshold, contents);
+            manager.checkpoint = checkpoint;
+            manager.userIds = new IdInterner(userCount);
+            manager.users = new User[Math.max(16, userCount)];
+            manager.postIds = new IdInterner(postCount);
+            manager.posts = new Post[Math.max(16, postCount)];
+            manager.postOrder = new PostIdOrder(manager.postIds, postCount);
+            manager.store = new PostStore(postCount);
+            manager.trendingHeap = new IndexedHeap(manager.store, postCount);
+
+            for (int i = 0; i < userCount; i++) {
+                String id = in.readString();
+                manager.userIds.add(id);
+                manager.users[i] = new User(id, i);
+            }
+            for (int i = 0; i < postCount; i++) {
+                int author = in.readVarInt();
+                String postId = in.readString();
+                manager.postIds.add(postId);
+                manager.posts[i] = new Post(manager.users[author].id, author, postId, i, contents.add(in.readBytes()));
+                manager.postOrder.insert(i);
+                manager.store.add(i, author, 0); // Labeled once every post is in the order
+            }
+            for (int i = 0; i < postCount; i++) {
+                manager.store.relabel(i, manager.postOrder.label(i));
+            }
+            for (int i = 0; i < userCount; i++) {
+                User user = manager.users[i];
+                user.followed = in.readSet();
+                user.followers = in.readSet();
+                in.readBitmap(user.ownPosts);
+                in.readBitmap(user.postSeen.exact());
+                user.postSeen.runOptimize(); // Seen sets are often long runs of IDs
+                in.readBitmap(user.likedPosts);
+            }
+            for (int i = 0; i < postCount; i++) {
+                Post post = manager.posts[i];
+                in.readBitmap(post.whoLiked);
+                in.readBitmap(post.whoSee);
+                manager.store.setLikes(i, post.whoLiked.size());
+                manager.trendingHeap.insert(i); // Likes are final now, so the heap order holds
+            }
+            if (in.readFixedInt() != MAGIC) {
+                throw new IOException("Snapshot is corrupt or truncated: " + path);
+            }
+
+            if (feedMode != FeedMode.PULL) {
+                // Materialize every feed from the follow graph, in hybrid mode only with pushed authors
+                for (int i = 0; i < userCount; i++) {
+                    User user = manager.users[i];
+                    user.celebrity = feedMode == FeedMode.HYBRID && user.followers.size() > celebrityThreshold;
+                    if (user.celebrity) {
+                        user.rankedPosts = new FeedIndex(manager.store);
+                        for (IntIterator it = user.ownPosts.iterator(); it.hasNext(); ) {
+                            user.rankedPosts.insert(it.nextInt());
+                        }
+                    }
+                }
+                for (int i = 0; i < userCount; i++) {
+                    User user = manager.users[i];
+                    user.feed = new FeedIndex(manager.store);
+                    for (IntIterator followedIt = user.followed.iterator(); followedIt.hasNext(); ) {
+                        User author = manager.users[followedIt.nextInt()];
+                        if (author.celebrity) {
+                            continue;
+                        }
+                        for (IntIterator it = author.ownPosts.iterator(); it.hasNext(); ) {
+                            int post = it.nextInt();
+                            if (!user.likedPosts.contains(post) && !user.postSeen.contains(post)) {
+                                user.feed.insert(post);
+                            }
+                        }
+                    }
+                }
+            }
+            return manager;
+        }
+    }
+
+    // Varint encoder over a buffered stream
+    private static final class Writer implements AutoCloseable {
+        private final OutputStream out;
+
+        Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeFixedInt(int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        void writeString(String s) throws IOException {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeBytes(byte[] bytes) throws IOException {
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        // Packed sets iterate in ascending order, but the IDs are written whole as in version 1
+        void writeSet(PackedIntSet set) throws IOException {
+            writeVarInt(set.size());
+            for (IntIterator it = set.iterator(); it.hasNext(); ) {
+                writeVarInt(it.nextInt());
+            }
+        }
+
+        // Bitmaps iterate in ascending order, so only the gaps are written
+        void writeBitmap(CompressedBitmap bitmap) throws IOException {
+            writeVarInt(bitmap.size());
+            int previous = 0;
+            for (IntIterator it = bitmap.iterator(); it.hasNext(); ) {
+                int value = it.nextInt();
+                writeVarInt(value - previous);
+                previous = value;
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // Varint decoder over the memory-mapped file, one window of up to WINDOW_SIZE bytes at a time
+    private static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart; // File offset of the window
+
+        Reader(String path) throws IOException {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+            fileSize = channel.size();
+            map(0);
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+        }
+
+        private byte readByte() throws IOException {
+            if (!window.hasRemaining()) {
+                long next = windowStart + window.limit();
+                if (next >= fileSize) {
+                    throw new IOException("Snapshot is truncated");
+                }
+                map(next);
+            }
+            return window.get();
+        }
+
+        int readFixedInt() throws IOException {
+            return (readByte() & 0xFF) << 24 | (readByte() & 0xFF) << 16
+                    | (readByte() & 0xFF) << 8 | (readByte() & 0xFF);
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in snapshot");
+        }
+
+        String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[readVarInt()];
+            if (window.remaining() >= bytes.length) {
+                window.get(bytes);
+            } else {
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = readByte(); // Crosses into the next window
+                }
+            }
+            return bytes;
+        }
+
+        // IDs written from a packed set are ascending, so every add appends to the packed row
+        PackedIntSet readSet() throws IOException {
+            int count = readVarInt();
+            PackedIntSet set = new PackedIntSet();
+            for (int i = 0; i < count; i++) {
+                set.add(readVarInt());
+            }
+            return set;
+        }
+
+        // Values arrive in ascending order, so every add appends to the last container
+        void readBitmap(CompressedBitmap bitmap) throws IOException {
+            int count = readVarInt();
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                value += readVarInt();
+                bitmap.add(value);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package feedmanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Bounded single-producer/single-consumer ring of reusable slots, with no locks.
+// The producer claims a slot, fills it in place and publishes it; the consumer
+// takes it, uses it and releases it back. A full ring stalls the producer and an
+// empty one stalls the consumer, which is the backpressure between two stages.
+public class SpscRing<T> {
+    private static final int SPINS = 100; // Busy waits before yielding
+    private static final int YIELDS = 100; // Yields before parking
+    private static final long PARK_NANOS = 20_000; // Sleep between checks after that
+
+    private final Object[] slots; // Preallocated slots, reused round after round
+    private final int mask; // slots.length - 1
+    private final AtomicLong head = new AtomicLong(); // Next slot to consume, written by the consumer only
+    private final AtomicLong tail = new AtomicLong(); // Next slot to fill, written by the producer only
+    private volatile boolean closed; // Set by the producer after its last publish
+
+    // Each field below is written by one side only and read by others after the threads are joined
+    private long cachedHead; // Producer's last view of head, avoids a volatile read per claim
+    private long cachedTail; // Consumer's last view of tail
+    long producerStalls; // Times the producer found the ring full
+    long consumerStalls; // Times the consumer found the ring empty
+    long published; // Slots passed through the ring
+
+    public SpscRing(int capacity, Supplier<T> factory) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+        }
+        mask = capacity - 1;
+    }
+
+    // Producer: the next slot to fill, waits while the ring is full
+    @SuppressWarnings("unchecked")
+    public T claim() {
+        long t = tail.get();
+        if (t - cachedHead == slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead == slots.length) {
+                producerStalls++;
+                int idle = 0;
+                do {
+                    idle = backOff(idle);
+                    cachedHead = head.get();
+                } while (t - cachedHead == slots.length);
+            }
+        }
+        return (T) slots[(int) t & mask];
+    }
+
+    // Producer: hand the claimed slot to the consumer
+    public void publish() {
+        tail.lazySet(tail.get() + 1); // Ordered store, the slot contents are visible before the new tail
+        published++;
+    }
+
+    // Producer: no more slots will be published
+    public void close() {
+        closed = true;
+    }
+
+    // Consumer: the next filled slot, or null if none is ready yet
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if (h == cachedTail) {
+            cachedTail = tail.get();
+            if (h == cachedTail) {
+                return null;
+            }
+        }
+        return (T) slots[(int) h & mask];
+    }
+
+    // Consumer: the next filled slot, waits while the ring is empty, null once it is closed and drained
+    public T take() {
+        T slot = poll();
+        if (slot != null) {
+            return slot;
+        }
+        consumerStalls++;
+        int idle = 0;
+        while (true) {
+            boolean wasClosed = closed; // Read before tail, so a publish before close is not missed
+            slot = poll();
+            if (slot != null || wasClosed) {
+                return slot;
+            }
+            idle = backOff(idle);
+        }
+    }
+
+    // Consumer: give the taken slot back to the producer
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    // Spin first, then yield, then park, so a long wait does not burn a core
+    static int backOff(int idle) {
+        if (idle < SPINS) {
+            Thread.onSpinWait();
+        } else if (idle < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+}
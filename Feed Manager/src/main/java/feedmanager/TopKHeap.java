@@ -0,0 +1,104 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+public class TopKHeap {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys; // Min-heap of sort keys, the weakest kept post sits at the root
+    private Post[] posts; // Post of each key, moved along with it
+    private int size; // Number of posts currently kept
+    private final int capacity; // Maximum number of posts to keep (k)
+
+    // Constructor
+    public TopKHeap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        // Grow lazily, so a huge k does not allocate a huge array up front
+        int initial = Math.min(this.capacity, INITIAL_CAPACITY);
+        this.keys = new long[initial];
+        this.posts = new Post[initial];
+        this.size = 0;
+    }
+
+    // Offer a post with its PostStore sort key, it is kept only if it belongs to the current top k
+    public boolean offer(Post post, long key) {
+        if (size < capacity) {
+            if (size == keys.length) {
+                int grown = (int) Math.min((long) keys.length * 2, capacity);
+                keys = Arrays.copyOf(keys, grown);
+                posts = Arrays.copyOf(posts, grown);
+            }
+            siftUp(size++, key, post);
+            return true;
+        }
+        // Full: reject anything that does not beat the weakest kept post
+        if (capacity == 0 || key <= keys[0]) {
+            return false;
+        }
+        siftDown(0, key, post);
+        return true;
+    }
+
+    // Empty the heap and return the kept posts, most liked first
+    public Post[] drainDescending() {
+        Post[] result = new Post[size];
+        // Popping the minimum repeatedly fills the result from the back
+        while (size > 0) {
+            result[size - 1] = posts[0];
+            size--;
+            long key = keys[size];
+            Post post = posts[size];
+            posts[size] = null;
+            if (size > 0) {
+                siftDown(0, key, post);
+            }
+        }
+        return result;
+    }
+
+    // Check if the heap is empty
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Get the size of the heap
+    public int getSize() {
+        return size;
+    }
+
+    // Sift a key up from a free slot to maintain the min-heap property
+    private void siftUp(int index, long key, Post post) {
+        while (index > 0) {
+            int parentIndex = (index - 1) / 2;
+            if (key >= keys[parentIndex]) {
+                break;
+            }
+            keys[index] = keys[parentIndex];
+            posts[index] = posts[parentIndex];
+            index = parentIndex;
+        }
+        keys[index] = key;
+        posts[index] = post;
+    }
+
+    // Sift a key down from a free slot to maintain the min-heap property
+    private void siftDown(int index, long key, Post post) {
+        int half = size / 2;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            // Pick the smaller child
+            if (right < size && keys[right] < keys[child]) {
+                child = right;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[index] = keys[child];
+            posts[index] = posts[child];
+            index = child;
+        }
+        keys[index] = key;
+        posts[index] = post;
+    }
+}
@@ -0,0 +1,31 @@
+package feedmanager;
+
+public class User {
+    private static final FeedCursor[] NO_CURSORS = new FeedCursor[0];
+
+    public String id;
+    public int index; // dense int id, used by every relation set
+    public PackedIntSet followers; // to store  follower ids
+    public PackedIntSet followed; // to store followed ids
+    public SeenPosts postSeen; // to store post ids that are seen, exactly unless bounded
+    public CompressedBitmap likedPosts; // to store liked posts ids
+    public CompressedBitmap ownPosts; // to store user's own post ids
+    public FeedIndex feed; // materialized feed, only kept in push and hybrid modes
+    public boolean celebrity; // hybrid mode: too many followers to push to, posts are pulled instead
+    public FeedIndex rankedPosts; // hybrid mode: a celebrity's own posts in ranking order, for pulling
+    public FeedCursor cursor; // pull mode: feed kept between reads, null until the first one
+    public FeedCursor[] cursorWatchers = NO_CURSORS; // pull mode: followers' cursors ranking this user's posts, some stale
+    public int cursorWatcherCount;
+    public volatile FeedView view; // concurrent mode: frozen followed/seen/liked sets for feed reads, null when stale
+
+    // Constructor
+    public User(String id, int index) {
+        this.id = id;
+        this.index = index;
+        followers = new PackedIntSet();
+        followed = new PackedIntSet();
+        postSeen = new SeenPosts();
+        likedPosts = new CompressedBitmap();
+        ownPosts = new CompressedBitmap();
+    }
+}
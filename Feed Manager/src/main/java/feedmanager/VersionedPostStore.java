@@ -0,0 +1,180 @@
+package feedmanager;
+
+import java.util.Arrays;
+
+// PostStore that also keeps past sort keys, for ConcurrentManager's lock-free reads.
+// The columns of PostStore hold the latest keys, which writers and the trending heap use
+// under their locks. Beside them each post has a chain of versions, newest first, each the
+// key it had from an epoch of Epochs on; a read pinned at an epoch takes the first version at
+// or below it, and a post without one did not exist yet. Each author's posts are also kept in
+// an append-only list, so a read finds them without the bitmap a writer may be growing.
+// Every change is staged as a version tagged with the next epoch, and the writer that stages
+// one cuts its chain below the newest version that the oldest pinned read can see.
+public class VersionedPostStore extends PostStore {
+    private final Epochs epochs;
+    private volatile KeyVersion[] versions = new KeyVersion[16]; // Post int ID -> newest version
+    private volatile AuthorPosts[] authorPosts = new AuthorPosts[16]; // Author int ID -> posts, null if none
+    private long stagedEpoch = -1; // Epoch that oldestPinned was taken for
+    private long oldestPinned; // Oldest epoch a read may be pinned at while stagedEpoch is staged
+
+    public VersionedPostStore(Epochs epochs) {
+        this.epochs = epochs;
+    }
+
+    @Override
+    public void add(int post, int author, long label) {
+        super.add(post, author, label);
+        if (post >= versions.length) {
+            versions = Arrays.copyOf(versions, Math.max(versions.length * 2, post + 1));
+        }
+        stage(post);
+        if (author >= authorPosts.length) {
+            authorPosts = Arrays.copyOf(authorPosts, Math.max(authorPosts.length * 2, author + 1));
+        }
+        AuthorPosts own = authorPosts[author];
+        if (own == null) {
+            own = new AuthorPosts();
+            authorPosts[author] = own;
+        }
+        own.append(post);
+    }
+
+    @Override
+    public void relabel(int post, long label) {
+        super.relabel(post, label);
+        if (post < versions.length && versions[post] != null) {
+            stage(post);
+        }
+    }
+
+    @Override
+    public void like(int post) {
+        super.like(post);
+        stage(post);
+    }
+
+    @Override
+    public void unlike(int post) {
+        super.unlike(post);
+        stage(post);
+    }
+
+    @Override
+    public void setLikes(int post, int likes) {
+        super.setLikes(post, likes);
+        stage(post);
+    }
+
+    // Sort key of a post as of an epoch, or -1 if the post did not exist then
+    public long sortKeyAt(int post, long epoch) {
+        KeyVersion[] versions = this.versions;
+        if (post >= versions.length) {
+            return -1;
+        }
+        for (KeyVersion version = versions[post]; version != null; version = version.older) {
+            if (version.epoch <= epoch) {
+                return version.key;
+            }
+        }
+        return -1;
+    }
+
+    public int likesAt(int post, long epoch) {
+        return (int) (sortKeyAt(post, epoch) >>> PostIdOrder.LABEL_BITS);
+    }
+
+    // Offer an author's posts that existed at the epoch and are neither seen nor liked to the
+    // heap, with their keys as of then. Returns how many were offered.
+    public int offerVisible(int author, long epoch, TopKHeap heap, SeenPosts seen, CompressedBitmap liked,
+                            Post[] posts) {
+        AuthorPosts[] authorPosts = this.authorPosts;
+        AuthorPosts own = author < authorPosts.length ? authorPosts[author] : null;
+        if (own == null) {
+            return 0;
+        }
+        int count = own.count; // Read before the array, which then holds at least that many
+        int[] ids = own.ids;
+        int offered = 0;
+        for (int i = 0; i < count; i++) {
+            int post = ids[i];
+            if (!seen.contains(post) && !liked.contains(post)) {
+                long key = sortKeyAt(post, epoch);
+                if (key >= 0) {
+                    offered++;
+                    heap.offer(posts[post], key);
+                }
+            }
+        }
+        return offered;
+    }
+
+    // Insert an author's posts that existed at the epoch into the heap, with their keys as of then.
+    // Returns how many were inserted.
+    public int insertVisible(int author, long epoch, CustomHeap heap) {
+        AuthorPosts[] authorPosts = this.authorPosts;
+        AuthorPosts own = author < authorPosts.length ? authorPosts[author] : null;
+        if (own == null) {
+            return 0;
+        }
+        int count = own.count;
+        int[] ids = own.ids;
+        int inserted = 0;
+        for (int i = 0; i < count; i++) {
+            long key = sortKeyAt(ids[i], epoch);
+            if (key >= 0) {
+                heap.insert(ids[i], key);
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    // Tag the post's latest key with the next epoch, and drop the versions no read can reach
+    private void stage(int post) {
+        long epoch = epochs.next();
+        if (epoch != stagedEpoch) {
+            stagedEpoch = epoch;
+            oldestPinned = epochs.oldestPinned(); // Once per epoch, it scans every slot
+        }
+        KeyVersion newest = versions[post];
+        if (newest != null && newest.epoch == epoch) {
+            newest = newest.older; // Staged earlier in the same write and never published, replace it
+        }
+        for (KeyVersion version = newest; version != null; version = version.older) {
+            if (version.epoch <= oldestPinned) {
+                version.older = null; // Every pinned read stops here or earlier
+                break;
+            }
+        }
+        versions[post] = new KeyVersion(sortKey(post), epoch, newest);
+    }
+
+    // A post's sort key from an epoch on, until the next newer version
+    private static final class KeyVersion {
+        final long key;
+        final long epoch;
+        volatile KeyVersion older; // Cut once no read can reach past this version
+
+        KeyVersion(long key, long epoch, KeyVersion older) {
+            this.key = key;
+            this.epoch = epoch;
+            this.older = older;
+        }
+    }
+
+    // An author's post int IDs in creation order, appended by one writer at a time
+    private static final class AuthorPosts {
+        volatile int[] ids = new int[4];
+        volatile int count; // Written after the ID it counts
+
+        void append(int post) {
+            int[] ids = this.ids;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                this.ids = ids;
+            }
+            ids[count] = post;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+// Random changes checked against a TreeSet, in array, bitmap and run containers
+class CompressedBitmapTest {
+    private static final int CHUNK = 1 << 16;
+
+    @Test
+    void matchesATreeSetInEveryContainerKind() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            int element = element(random);
+            if (random.nextInt(4) != 0) {
+                assertEquals(expected.add(element), bitmap.add(element), "add " + element);
+            } else {
+                assertEquals(expected.remove(element), bitmap.remove(element), "remove " + element);
+            }
+        }
+        check(bitmap, expected);
+
+        addRuns(bitmap, expected);
+        bitmap.runOptimize();
+        check(bitmap, expected);
+        for (int i = 0; i < 50_000; i++) {
+            int element = element(random);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(element), bitmap.add(element), "add " + element);
+            } else {
+                assertEquals(expected.remove(element), bitmap.remove(element), "remove " + element);
+            }
+        }
+        check(bitmap, expected);
+    }
+
+    @Test
+    void combinesLikeSets() {
+        Random random = new Random(2);
+        CompressedBitmap left = new CompressedBitmap();
+        CompressedBitmap right = new CompressedBitmap();
+        TreeSet<Integer> leftExpected = new TreeSet<>();
+        TreeSet<Integer> rightExpected = new TreeSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int element = element(random);
+            if (random.nextBoolean()) {
+                left.add(element);
+                leftExpected.add(element);
+            } else {
+                right.add(element);
+                rightExpected.add(element);
+            }
+        }
+        addRuns(right, rightExpected);
+        right.runOptimize();
+
+        left.or(right);
+        leftExpected.addAll(rightExpected);
+        check(left, leftExpected);
+        check(right, rightExpected); // Untouched, its containers were copied
+
+        for (int element = 0; element < 3 * CHUNK; element += 2) {
+            right.add(element);
+            rightExpected.add(element);
+        }
+        left.andNot(right);
+        leftExpected.removeAll(rightExpected);
+        check(left, leftExpected);
+    }
+
+    // Chunk 0 dense enough for a bitmap, chunk 1 sparse, chunk 2 long runs, and a few far out
+    private static int element(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return random.nextInt(CHUNK);
+            case 1:
+                return CHUNK + random.nextInt(CHUNK) / 64 * 64;
+            case 2:
+                return 2 * CHUNK + random.nextInt(8) * 4096 + random.nextInt(2048);
+            default:
+                return random.nextInt(Integer.MAX_VALUE);
+        }
+    }
+
+    // Fill the ranges of chunk 2 outright, so run encoding pays off there
+    private static void addRuns(CompressedBitmap bitmap, TreeSet<Integer> expected) {
+        for (int run = 0; run < 8; run++) {
+            for (int element = 2 * CHUNK + run * 4096; element < 2 * CHUNK + run * 4096 + 2048; element++) {
+                bitmap.add(element);
+                expected.add(element);
+            }
+        }
+    }
+
+    private static void check(CompressedBitmap bitmap, TreeSet<Integer> expected) {
+        assertEquals(expected.size(), bitmap.size());
+        int[] elements = new int[bitmap.size()];
+        int count = 0;
+        for (IntIterator it = bitmap.iterator(); it.hasNext(); ) {
+            elements[count++] = it.nextInt();
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), elements);
+        for (int element = 0; element < 3 * CHUNK; element++) {
+            assertEquals(expected.contains(element), bitmap.contains(element), "contains " + element);
+        }
+    }
+}
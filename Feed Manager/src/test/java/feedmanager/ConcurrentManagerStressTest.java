@@ -0,0 +1,84 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+// Many threads running random commands against one ConcurrentManager, with the relations
+// checked by checkInvariants while they run and after. Seeded, so a failure can be replayed.
+class ConcurrentManagerStressTest {
+    private static final int USERS = 200;
+    private static final int POSTS = 1000;
+    private static final int THREADS = 8;
+    private static final int COMMANDS_PER_THREAD = 20_000;
+
+    // Single-threaded, every answer must be the one a plain Manager gives
+    @Test
+    void answersLikeManagerOnOneThread() {
+        Manager plain = new Manager(FeedMode.PULL);
+        ConcurrentManager concurrent = new ConcurrentManager();
+        Command command = new Command();
+        Random random = new Random(1);
+        List<String> lines = TestCommands.setup(random, USERS, POSTS);
+        for (int i = 0; i < COMMANDS_PER_THREAD; i++) {
+            lines.add(TestCommands.randomCommand(random, USERS, POSTS));
+        }
+        for (String line : lines) {
+            assertEquals(TestCommands.run(plain, command, line), TestCommands.run(concurrent, command, line), line);
+        }
+        concurrent.checkInvariants();
+    }
+
+    // Commands from every thread at once, interleaved with invariant checks
+    @Test
+    void keepsInvariantsUnderConcurrentCommands() throws InterruptedException {
+        ConcurrentManager manager = new ConcurrentManager();
+        Command setupCommand = new Command();
+        for (String line : TestCommands.setup(new Random(2), USERS, POSTS)) {
+            TestCommands.run(manager, setupCommand, line);
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            long seed = 100 + t;
+            workers[t] = new Thread(() -> {
+                Command command = new Command(); // One per thread, it is reused for every line
+                Random random = new Random(seed);
+                try {
+                    for (int i = 0; i < COMMANDS_PER_THREAD && failure.get() == null; i++) {
+                        TestCommands.run(manager, command, TestCommands.randomCommand(random, USERS, POSTS));
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "stress-" + t);
+            workers[t].start();
+        }
+        Thread checker = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted() && failure.get() == null) {
+                    manager.checkInvariants();
+                    Thread.sleep(5);
+                }
+            } catch (InterruptedException e) {
+                // The workers are done
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }, "stress-checker");
+        checker.start();
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        checker.interrupt();
+        checker.join();
+        assertNull(failure.get(), () -> "Failed: " + failure.get());
+        manager.checkInvariants();
+    }
+}
@@ -0,0 +1,55 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Top posts after random likes and unlikes, checked against a full sort of the sort keys
+class IndexedHeapTest {
+    private static final int POSTS = 2000;
+
+    @Test
+    void keepsTheTopPostsAsLikesChange() {
+        PostStore store = new PostStore();
+        IndexedHeap heap = new IndexedHeap(store);
+        Random random = new Random(1);
+        for (int post = 0; post < POSTS; post++) {
+            store.add(post, 0, random.nextInt(1 << 30) * (long) POSTS + post); // Distinct labels
+            assertTrue(heap.insert(post));
+        }
+        assertFalse(heap.insert(0));
+        assertEquals(POSTS, heap.getSize());
+
+        for (int i = 0; i < 50_000; i++) {
+            int post = random.nextInt(POSTS);
+            if (store.likes(post) > 0 && random.nextInt(3) == 0) {
+                store.unlike(post);
+                heap.decreaseKey(post);
+            } else {
+                store.like(post);
+                heap.increaseKey(post);
+            }
+            if (i % 5000 == 0) {
+                check(heap, store, 1 + random.nextInt(100));
+            }
+        }
+        check(heap, store, POSTS);
+        check(heap, store, POSTS + 10);
+        assertEquals(0, heap.top(0).length);
+    }
+
+    private static void check(IndexedHeap heap, PostStore store, int k) {
+        Integer[] posts = new Integer[POSTS];
+        for (int post = 0; post < POSTS; post++) {
+            posts[post] = post;
+        }
+        Arrays.sort(posts, (a, b) -> Long.compare(store.sortKey(b), store.sortKey(a)));
+        int[] expected = Arrays.stream(posts).limit(k).mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expected, heap.top(k));
+    }
+}
@@ -0,0 +1,121 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Journals written by one Manager and recovered into a fresh one, whole, torn and damaged
+class JournalTest {
+    private static final int HEADER_SIZE = 20; // Magic, version, checkpoint, user and post counts
+
+    @TempDir
+    Path dir;
+
+    // Every kind of change comes back exactly as it was made
+    @Test
+    void recoversEveryChange() throws IOException {
+        Path path = dir.resolve("feed.jnl");
+        Manager original = journaled(path, TestCommands.workload(1, 50, 200, 5000));
+
+        assertEquals(TestCommands.describe(original), TestCommands.describe(recover(path)));
+    }
+
+    // A record cut short by a crash is dropped, and the journal goes on after the last whole one
+    @Test
+    void cutsOffATornLastRecord() throws IOException {
+        Path path = dir.resolve("feed.jnl");
+        Manager original = new Manager(FeedMode.PULL);
+        String expected;
+        long intactSize;
+        try (Journal journal = new Journal(path.toString(), original, 0, 0)) {
+            TestCommands.runAll(original, TestCommands.workload(2, 50, 200, 2000));
+            expected = TestCommands.describe(original);
+            intactSize = Files.size(path);
+            TestCommands.run(original, "create_post u1 torn content that never fully reached the disk");
+        }
+        truncate(path, Files.size(path) - 3);
+
+        Manager recovered = new Manager(FeedMode.PULL);
+        try (Journal journal = new Journal(path.toString(), recovered, 0, 0)) {
+            assertEquals(intactSize, Files.size(path));
+            assertEquals(expected, TestCommands.describe(recovered));
+            TestCommands.run(recovered, "create_user after");
+        }
+        assertTrue(recover(path).userIndex("after") >= 0);
+    }
+
+    // Zeros past the last record, as a file system may leave after a crash, are cut off as well
+    @Test
+    void cutsOffAZeroedTail() throws IOException {
+        Path path = dir.resolve("feed.jnl");
+        Manager original = journaled(path, TestCommands.workload(3, 20, 50, 500));
+        long intactSize = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(4096));
+        }
+
+        assertEquals(TestCommands.describe(original), TestCommands.describe(recover(path)));
+        assertEquals(intactSize, Files.size(path));
+    }
+
+    // A damaged record with intact ones after it is refused, and the file is left as it was
+    @Test
+    void refusesDamageInTheMiddle() throws IOException {
+        Path path = dir.resolve("feed.jnl");
+        journaled(path, TestCommands.workload(4, 20, 50, 500));
+        long size = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer payloadByte = ByteBuffer.allocate(1);
+            channel.read(payloadByte, HEADER_SIZE + 9); // Second payload byte of the first record
+            payloadByte.put(0, (byte) (payloadByte.get(0) ^ 0x55)).rewind();
+            channel.write(payloadByte, HEADER_SIZE + 9);
+        }
+
+        assertThrows(IOException.class, () -> new Journal(path.toString(), new Manager(FeedMode.PULL), 0, 0));
+        assertEquals(size, Files.size(path));
+    }
+
+    // A record larger than the journal's buffer is written and recovered like any other
+    @Test
+    void recoversARecordLargerThanTheBuffer() throws IOException {
+        Path path = dir.resolve("feed.jnl");
+        String content = "x".repeat(3 << 20);
+        journaled(path, List.of("create_user u0", "create_post u0 big " + content, "create_user u1"));
+
+        Manager recovered = recover(path);
+        assertEquals(content, recovered.postContent(recovered.postIndex("big")));
+        assertTrue(recovered.userIndex("u1") >= 0);
+    }
+
+    private static Manager journaled(Path path, List<String> lines) throws IOException {
+        Manager manager = new Manager(FeedMode.PULL);
+        try (Journal journal = new Journal(path.toString(), manager, 0, 0)) {
+            TestCommands.runAll(manager, lines);
+        }
+        manager.journal = null;
+        return manager;
+    }
+
+    private static Manager recover(Path path) throws IOException {
+        Manager manager = new Manager(FeedMode.PULL);
+        new Journal(path.toString(), manager, 0, 0).close();
+        manager.journal = null;
+        return manager;
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
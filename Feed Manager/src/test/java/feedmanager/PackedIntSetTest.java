@@ -0,0 +1,69 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+// Random changes checked against a TreeSet, through the overlays and the merges that empty them
+class PackedIntSetTest {
+    @Test
+    void matchesATreeSetThroughOverlayMerges() {
+        PackedIntSet set = new PackedIntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int element = 0; element < 20_000; element += 3) {
+            assertTrue(set.add(element)); // Ascending, so appended to the packed row
+            expected.add(element);
+        }
+        check(set, expected);
+
+        long compactions = PackedIntSet.compactionCount();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            int element = random.nextInt(10) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(25_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(element), set.add(element), "add " + element);
+            } else {
+                assertEquals(expected.remove(element), set.remove(element), "remove " + element);
+            }
+            if (i % 10_000 == 0) {
+                check(set, expected);
+            }
+        }
+        assertTrue(PackedIntSet.compactionCount() > compactions);
+        check(set, expected);
+    }
+
+    // Removing a packed element and adding it back leaves it packed, not in both overlays
+    @Test
+    void addsBackARemovedElement() {
+        PackedIntSet set = new PackedIntSet();
+        for (int element = 0; element < 100; element++) {
+            set.add(element);
+        }
+        assertTrue(set.remove(50));
+        assertFalse(set.remove(50));
+        assertFalse(set.contains(50));
+        assertTrue(set.add(50));
+        assertFalse(set.add(50));
+        assertTrue(set.contains(50));
+        assertEquals(100, set.size());
+    }
+
+    private static void check(PackedIntSet set, TreeSet<Integer> expected) {
+        assertEquals(expected.size(), set.size());
+        int[] elements = new int[set.size()];
+        int count = 0;
+        for (IntIterator it = set.iterator(); it.hasNext(); ) {
+            elements[count++] = it.nextInt();
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), elements);
+        for (int element = 0; element < 25_000; element++) {
+            assertEquals(expected.contains(element), set.contains(element), "contains " + element);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Labels must always compare as the post IDs do, also after inserts that run out of room
+class PostIdOrderTest {
+    // Every insert lands in the gap the previous one halved, so the labels soon run out there
+    @Test
+    void relabelsWhenAGapRunsOut() {
+        IdInterner ids = new IdInterner();
+        PostIdOrder order = new PostIdOrder(ids);
+        PostStore store = new PostStore();
+        insert(ids, order, store, "a");
+        insert(ids, order, store, "z");
+        for (int i = 0; i < 10_000; i++) {
+            insert(ids, order, store, String.format("m%07d", i));
+        }
+
+        assertTrue(order.relabels() > 0);
+        assertTrue(order.relabeledPosts() >= order.relabels());
+        checkOrder(ids, order, store);
+    }
+
+    // Same at the front, where each new ID is smaller than all before it
+    @Test
+    void relabelsAtTheFront() {
+        IdInterner ids = new IdInterner();
+        PostIdOrder order = new PostIdOrder(ids);
+        PostStore store = new PostStore();
+        for (int i = 10_000; i > 0; i--) {
+            insert(ids, order, store, String.format("p%07d", i));
+        }
+
+        assertTrue(order.relabels() > 0);
+        checkOrder(ids, order, store);
+    }
+
+    @Test
+    void ordersRandomIds() {
+        IdInterner ids = new IdInterner();
+        PostIdOrder order = new PostIdOrder(ids);
+        PostStore store = new PostStore();
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            insert(ids, order, store, Long.toString(random.nextLong() & 0xFFFFF, 36) + "_" + i);
+        }
+
+        checkOrder(ids, order, store);
+    }
+
+    // Insert a post as Manager does, copying the labels of any neighbours it moved into the store
+    private static void insert(IdInterner ids, PostIdOrder order, PostStore store, String id) {
+        int post = ids.add(id);
+        int labeled = order.insert(post);
+        store.add(post, 0, order.label(post));
+        if (labeled > 1) {
+            store.relabel(order, labeled);
+        }
+    }
+
+    // Labels and sort keys increase with the IDs, and next() walks the IDs in order
+    private static void checkOrder(IdInterner ids, PostIdOrder order, PostStore store) {
+        Integer[] posts = new Integer[ids.size()];
+        for (int post = 0; post < posts.length; post++) {
+            posts[post] = post;
+            assertEquals(order.label(post), store.sortKey(post), ids.nameOf(post));
+            assertTrue(order.label(post) < 1L << PostIdOrder.LABEL_BITS);
+        }
+        Arrays.sort(posts, (a, b) -> ids.nameOf(a).compareTo(ids.nameOf(b)));
+        for (int i = 1; i < posts.length; i++) {
+            assertTrue(order.label(posts[i - 1]) < order.label(posts[i]),
+                    ids.nameOf(posts[i - 1]) + " before " + ids.nameOf(posts[i]));
+            assertEquals((int) posts[i], order.next(posts[i - 1]));
+        }
+        assertEquals(-1, order.next(posts[posts.length - 1]));
+    }
+}
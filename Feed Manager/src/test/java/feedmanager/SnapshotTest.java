@@ -0,0 +1,74 @@
+package feedmanager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Snapshots written by one Manager and loaded into another, alone and with a journal after them
+class SnapshotTest {
+    @TempDir
+    Path dir;
+
+    // A loaded snapshot answers every command as the saved state did, in any feed mode
+    @Test
+    void loadsTheSavedStateInEveryFeedMode() throws IOException {
+        Path path = dir.resolve("feed.snap");
+        Manager original = new Manager(FeedMode.PULL);
+        TestCommands.runAll(original, TestCommands.workload(1, 50, 200, 5000));
+        original.writeSnapshot(path.toString());
+        String expected = TestCommands.describe(original);
+
+        for (FeedMode mode : FeedMode.values()) {
+            Manager loaded = Manager.loadSnapshot(path.toString(), mode);
+            assertEquals(expected, TestCommands.describe(loaded), mode.toString());
+            assertEquals(1, loaded.checkpoint);
+        }
+        assertFalse(Files.exists(dir.resolve("feed.snap.tmp")));
+    }
+
+    // Saving again replaces the snapshot, under the next checkpoint
+    @Test
+    void replacesAnEarlierSnapshot() throws IOException {
+        Path path = dir.resolve("feed.snap");
+        List<String> lines = TestCommands.workload(2, 30, 100, 2000);
+        Manager original = new Manager(FeedMode.PULL);
+        TestCommands.runAll(original, lines.subList(0, lines.size() / 2));
+        original.writeSnapshot(path.toString());
+        TestCommands.runAll(original, lines.subList(lines.size() / 2, lines.size()));
+        original.writeSnapshot(path.toString());
+
+        Manager loaded = Manager.loadSnapshot(path.toString(), FeedMode.PULL);
+        assertEquals(TestCommands.describe(original), TestCommands.describe(loaded));
+        assertEquals(2, loaded.checkpoint);
+    }
+
+    // The journal restarts from a saved snapshot: loading it and replaying the journal gives the
+    // final state, and replaying that journal without the snapshot is refused
+    @Test
+    void continuesFromTheJournalAfterIt() throws IOException {
+        Path snapshot = dir.resolve("feed.snap");
+        Path journalPath = dir.resolve("feed.jnl");
+        List<String> lines = TestCommands.workload(3, 30, 100, 2000);
+        Manager original = new Manager(FeedMode.PULL);
+        try (Journal journal = new Journal(journalPath.toString(), original, 0, 0)) {
+            TestCommands.runAll(original, lines.subList(0, lines.size() / 2));
+            original.writeSnapshot(snapshot.toString());
+            TestCommands.runAll(original, lines.subList(lines.size() / 2, lines.size()));
+        }
+        original.journal = null;
+
+        Manager recovered = Manager.loadSnapshot(snapshot.toString(), FeedMode.PULL);
+        new Journal(journalPath.toString(), recovered, 0, 0).close();
+        recovered.journal = null;
+        assertEquals(TestCommands.describe(original), TestCommands.describe(recovered));
+
+        assertThrows(IOException.class, () -> new Journal(journalPath.toString(), new Manager(FeedMode.PULL), 0, 0));
+    }
+}
@@ -0,0 +1,112 @@
+package feedmanager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Runs input file lines against a Manager the way Main does, for tests that compare answers
+final class TestCommands {
+    private TestCommands() {
+    }
+
+    // Run one line and return what Main would log for it
+    static String run(Manager manager, Command command, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputSink out = new ByteArrayOutputSink(256);
+        CommandParser.tokenize(ByteBuffer.wrap(bytes), 0, bytes.length, command);
+        Main.execute(manager, command, out);
+        return new String(out.array(), 0, out.length(), StandardCharsets.UTF_8);
+    }
+
+    static String run(Manager manager, String line) {
+        return run(manager, new Command(), line);
+    }
+
+    static void runAll(Manager manager, Iterable<String> lines) {
+        Command command = new Command();
+        for (String line : lines) {
+            run(manager, command, line);
+        }
+    }
+
+    // Users, a follow graph and posts to run the random commands against
+    static List<String> setup(Random random, int users, int posts) {
+        List<String> lines = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            lines.add("create_user u" + u);
+        }
+        for (int i = 0; i < users * 10; i++) {
+            lines.add("follow_user u" + random.nextInt(users) + " u" + random.nextInt(users));
+        }
+        for (int p = 0; p < posts / 2; p++) {
+            lines.add("create_post u" + random.nextInt(users) + " p" + p + " content of p" + p);
+        }
+        return lines;
+    }
+
+    // A mix of every command, some of them on missing users and posts
+    static String randomCommand(Random random, int users, int posts) {
+        String user = "u" + random.nextInt(users + 5);
+        String other = "u" + random.nextInt(users + 5);
+        String post = "p" + random.nextInt(posts);
+        switch (random.nextInt(11)) {
+            case 0:
+                return "follow_user " + user + " " + other;
+            case 1:
+                return "unfollow_user " + user + " " + other;
+            case 2:
+                return "create_post " + user + " " + post + " more content";
+            case 3:
+                return "see_post " + user + " " + post;
+            case 4:
+                return "see_all_posts_from_user " + user + " " + other;
+            case 5:
+            case 6:
+                return "toggle_like " + user + " " + post;
+            case 7:
+                return "generate_feed " + user + " " + (1 + random.nextInt(10));
+            case 8: {
+                int num = 1 + random.nextInt(5);
+                StringBuilder line = new StringBuilder("scroll_through_feed " + user + " " + num);
+                for (int i = 0; i < num; i++) {
+                    line.append(' ').append(random.nextInt(2));
+                }
+                return line.toString();
+            }
+            case 9:
+                return "trending " + (1 + random.nextInt(10));
+            default:
+                return "sort_posts " + user;
+        }
+    }
+
+    // The setup followed by that many random commands
+    static List<String> workload(long seed, int users, int posts, int commands) {
+        Random random = new Random(seed);
+        List<String> lines = setup(random, users, posts);
+        for (int i = 0; i < commands; i++) {
+            lines.add(randomCommand(random, users, posts));
+        }
+        return lines;
+    }
+
+    // Everything the read-only commands say about the state: every user's feed and posts,
+    // which cover follows, likes and seen posts, and the trending posts
+    static String describe(Manager manager) {
+        Command command = new Command();
+        StringBuilder state = new StringBuilder();
+        state.append(manager.userIds.size()).append(" users, ").append(manager.postIds.size()).append(" posts\n");
+        for (int user = 0; user < manager.userIds.size(); user++) {
+            String id = manager.userIds.nameOf(user);
+            state.append(run(manager, command, "generate_feed " + id + " 10000"));
+            state.append(run(manager, command, "sort_posts " + id));
+        }
+        for (int post = 0; post < manager.postIds.size(); post++) {
+            state.append(manager.postName(post)).append(": ").append(manager.postContent(post)).append('\n');
+        }
+        state.append(run(manager, command, "trending 10000"));
+        return state.toString();
+    }
+}
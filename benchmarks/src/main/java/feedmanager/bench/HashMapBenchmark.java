@@ -0,0 +1,109 @@
+package feedmanager.bench;
+
+import feedmanager.CustomHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+// CustomHashMap against java.util.HashMap: filling (with and without resizes) and lookups
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashMapBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    private String[] keys; // IDs shaped like the ones in command files
+    private String[] missing; // Keys that are never inserted
+    private Integer[] values; // Boxed once, so boxing is not measured
+    private CustomHashMap<String, Integer> customMap;
+    private HashMap<String, Integer> jdkMap;
+
+    @Setup
+    public void setUp() {
+        keys = new String[size];
+        missing = new String[size];
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "user" + i;
+            missing[i] = "post" + i;
+            values[i] = i;
+        }
+        customMap = new CustomHashMap<>();
+        jdkMap = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            customMap.put(keys[i], values[i]);
+            jdkMap.put(keys[i], values[i]);
+        }
+    }
+
+    // Put every key into an empty map, going through every resize
+    @Benchmark
+    public CustomHashMap<String, Integer> putCustom() {
+        CustomHashMap<String, Integer> map = new CustomHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public HashMap<String, Integer> putJdk() {
+        HashMap<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    // Same with the table sized up front, so no resize happens
+    @Benchmark
+    public CustomHashMap<String, Integer> putPresizedCustom() {
+        CustomHashMap<String, Integer> map = new CustomHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public HashMap<String, Integer> putPresizedJdk() {
+        HashMap<String, Integer> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], values[i]);
+        }
+        return map;
+    }
+
+    // Look up every key, then as many keys that are not there
+    @Benchmark
+    public void getCustom(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(customMap.get(keys[i]));
+            blackhole.consume(customMap.get(missing[i]));
+        }
+    }
+
+    @Benchmark
+    public void getJdk(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(jdkMap.get(keys[i]));
+            blackhole.consume(jdkMap.get(missing[i]));
+        }
+    }
+}
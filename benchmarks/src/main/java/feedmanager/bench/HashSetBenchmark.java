@@ -0,0 +1,105 @@
+package feedmanager.bench;
+
+import feedmanager.CustomHashSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+// CustomHashSet against java.util.HashSet when removals hit one probe cluster at a time.
+// Keys come in groups that share a hash code ("Aa" and "BB" hash alike), so each group
+// sits in one cluster and removing part of it exercises the deletion path.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashSetBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"1", "8", "32"})
+    int clusterLength; // Keys per hash group, a power of two; 1 means no collisions
+
+    private String[] keys; // Group g holds keys[g * clusterLength, (g + 1) * clusterLength)
+    private int groups;
+    private int cursor; // Next group to churn
+    private CustomHashSet<String> customSet;
+    private HashSet<String> jdkSet;
+
+    @Setup
+    public void setUp() {
+        groups = size / clusterLength;
+        keys = new String[groups * clusterLength];
+        int bits = Integer.numberOfTrailingZeros(clusterLength);
+        for (int g = 0; g < groups; g++) {
+            for (int j = 0; j < clusterLength; j++) {
+                StringBuilder key = new StringBuilder("post").append(g).append('-');
+                for (int b = 0; b < bits; b++) {
+                    key.append((j >> b & 1) == 0 ? "Aa" : "BB");
+                }
+                keys[g * clusterLength + j] = key.toString();
+            }
+        }
+        customSet = new CustomHashSet<>();
+        jdkSet = new HashSet<>();
+        for (String key : keys) {
+            customSet.add(key);
+            jdkSet.add(key);
+        }
+    }
+
+    // Remove every other key of a group, probe the whole group, then add the keys back
+    @Benchmark
+    public int churnCustom() {
+        int start = nextGroup();
+        for (int i = start; i < start + clusterLength; i += 2) {
+            customSet.remove(keys[i]);
+        }
+        int found = 0;
+        for (int i = start; i < start + clusterLength; i++) {
+            if (customSet.contains(keys[i])) {
+                found++;
+            }
+        }
+        for (int i = start; i < start + clusterLength; i += 2) {
+            customSet.add(keys[i]);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int churnJdk() {
+        int start = nextGroup();
+        for (int i = start; i < start + clusterLength; i += 2) {
+            jdkSet.remove(keys[i]);
+        }
+        int found = 0;
+        for (int i = start; i < start + clusterLength; i++) {
+            if (jdkSet.contains(keys[i])) {
+                found++;
+            }
+        }
+        for (int i = start; i < start + clusterLength; i += 2) {
+            jdkSet.add(keys[i]);
+        }
+        return found;
+    }
+
+    private int nextGroup() {
+        int group = cursor;
+        cursor = cursor + 1 == groups ? 0 : cursor + 1;
+        return group * clusterLength;
+    }
+}
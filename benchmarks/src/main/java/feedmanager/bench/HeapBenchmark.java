@@ -0,0 +1,130 @@
+package feedmanager.bench;
+
+import feedmanager.CustomHeap;
+import feedmanager.IdInterner;
+import feedmanager.Post;
+import feedmanager.PostIdOrder;
+import feedmanager.PostStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// CustomHeap on packed PostStore sort keys against java.util.PriorityQueue comparing Post
+// objects by like count and post ID, which gives the same order
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+    // Most liked first, ties broken by the higher post ID, as CustomHeap orders them
+    private static final Comparator<Post> MOST_LIKED_FIRST = (p1, p2) -> comparePosts(p2, p1);
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private Post[] posts; // Shuffled IDs, with 0-49 likes each
+    private long[] keys; // Sort key of each post
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] numbers = new int[size];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = numbers[i];
+            numbers[i] = numbers[j];
+            numbers[j] = swap;
+        }
+
+        IdInterner ids = new IdInterner(size);
+        PostIdOrder order = new PostIdOrder(ids, size);
+        PostStore store = new PostStore(size);
+        posts = new Post[size];
+        for (int i = 0; i < size; i++) {
+            String postId = "post" + numbers[i];
+            ids.add(postId);
+            posts[i] = new Post("author", 0, postId, i, 0); // Content is never read
+            order.insert(i);
+            store.add(i, 0, 0);
+            int likes = random.nextInt(50);
+            for (int user = 0; user < likes; user++) {
+                posts[i].whoLiked.add(user);
+            }
+            store.setLikes(i, likes);
+        }
+        keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            store.relabel(i, order.label(i));
+            keys[i] = store.sortKey(i);
+        }
+    }
+
+    // Posts by like count, then post ID, as the sort keys order them
+    static int comparePosts(Post p1, Post p2) {
+        int likesDiff = p1.whoLiked.size() - p2.whoLiked.size();
+        if (likesDiff != 0) {
+            return likesDiff;
+        }
+        return p1.postId.compareTo(p2.postId);
+    }
+
+    @Benchmark
+    public CustomHeap insertCustom() {
+        CustomHeap heap = new CustomHeap();
+        for (int i = 0; i < size; i++) {
+            heap.insert(i, keys[i]);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public PriorityQueue<Post> insertJdk() {
+        PriorityQueue<Post> heap = new PriorityQueue<>(MOST_LIKED_FIRST);
+        for (Post post : posts) {
+            heap.add(post);
+        }
+        return heap;
+    }
+
+    // Insert everything, then take it all out in order, as sort_posts does
+    @Benchmark
+    public void insertExtractCustom(Blackhole blackhole) {
+        CustomHeap heap = new CustomHeap();
+        for (int i = 0; i < size; i++) {
+            heap.insert(i, keys[i]);
+        }
+        while (!heap.isEmpty()) {
+            blackhole.consume(heap.extractMax());
+        }
+    }
+
+    @Benchmark
+    public void insertExtractJdk(Blackhole blackhole) {
+        PriorityQueue<Post> heap = new PriorityQueue<>(MOST_LIKED_FIRST);
+        for (Post post : posts) {
+            heap.add(post);
+        }
+        while (!heap.isEmpty()) {
+            blackhole.consume(heap.poll());
+        }
+    }
+}
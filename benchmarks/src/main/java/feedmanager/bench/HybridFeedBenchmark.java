@@ -0,0 +1,111 @@
+package feedmanager.bench;
+
+import feedmanager.ByteArrayOutputSink;
+import feedmanager.FeedMode;
+import feedmanager.Manager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// generate_feed on a skewed follow graph: every reader follows a few celebrities that
+// write most of the posts, plus a handful of regular authors. Sampled, so the tail
+// latencies of pull and hybrid mode can be compared, not just the averages.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HybridFeedBenchmark {
+    private static final int FEED_SIZE = 10; // Posts asked for by generate_feed
+    private static final int READERS = 2000;
+    private static final int CELEBRITIES = 5; // Followed by every reader
+    private static final int AUTHORS = 200; // Regular authors
+    private static final int AUTHORS_FOLLOWED = 20; // Regular authors per reader
+    private static final int POSTS_PER_AUTHOR = 10;
+    private static final int LIKERS = 16; // Users that only like posts
+
+    @Param({"PULL", "HYBRID"})
+    FeedMode feedMode;
+
+    @Param({"1000", "5000"})
+    int postsPerCelebrity;
+
+    private Manager manager;
+    private int firstReader;
+    private int next; // Reader of the next feed, round robin
+    private final ByteArrayOutputSink out = new ByteArrayOutputSink(1 << 12);
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        manager = new Manager(feedMode, READERS / 2); // Celebrities are past the threshold, regular authors are not
+
+        for (int l = 0; l < LIKERS; l++) {
+            manager.createUser("liker" + l);
+        }
+        for (int c = 0; c < CELEBRITIES; c++) {
+            manager.createUser("celebrity" + c);
+        }
+        for (int a = 0; a < AUTHORS; a++) {
+            manager.createUser("author" + a);
+        }
+        int firstCelebrity = manager.userIndex("celebrity0");
+        int firstAuthor = manager.userIndex("author0");
+        for (int r = 0; r < READERS; r++) {
+            String id = "reader" + r;
+            manager.createUser(id);
+            int reader = manager.userIndex(id);
+            if (r == 0) {
+                firstReader = reader;
+            }
+            for (int c = 0; c < CELEBRITIES; c++) {
+                manager.followUser(reader, firstCelebrity + c);
+            }
+            for (int a = 0; a < AUTHORS_FOLLOWED; a++) {
+                manager.followUser(reader, firstAuthor + random.nextInt(AUTHORS));
+            }
+        }
+
+        // Posts come after the follows, so push and hybrid mode fan them out as they are created
+        for (int c = 0; c < CELEBRITIES; c++) {
+            createPosts("celebrity" + c, postsPerCelebrity, random);
+        }
+        for (int a = 0; a < AUTHORS; a++) {
+            createPosts("author" + a, POSTS_PER_AUTHOR, random);
+        }
+    }
+
+    private void createPosts(String authorId, int count, Random random) {
+        int author = manager.userIndex(authorId);
+        for (int p = 0; p < count; p++) {
+            String postId = authorId + "-post" + p;
+            manager.createPost(author, postId, "content");
+            int post = manager.postIndex(postId);
+            int likes = random.nextInt(LIKERS);
+            for (int l = 0; l < likes; l++) {
+                manager.toggleLike(manager.userIndex("liker" + l), post, out);
+                out.reset();
+            }
+        }
+    }
+
+    @Benchmark
+    public int generateFeed() {
+        out.reset();
+        manager.generateFeed(firstReader + next, FEED_SIZE, out);
+        next = (next + 1) % READERS;
+        return out.length();
+    }
+}
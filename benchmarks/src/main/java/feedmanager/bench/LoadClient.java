@@ -0,0 +1,241 @@
+package feedmanager.bench;
+
+import feedmanager.Server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Drives a running Server (Main --serve=ADDRESS) with a workload file, such as one written by
+// WorkloadGenerator, and reports throughput and latency percentiles per number of sessions.
+// The setup part of the file (the create_user, follow_user and create_post lines at its start)
+// is sent once over one pipelined session. Then, for every session count, that many sessions
+// connect and each keeps one command in flight: it sends the next line of the rest of the file
+// (wrapping around), waits for the answer, and sends another, until the requests are done.
+// All sessions are driven from one thread with a selector, so the client does not need a
+// thread per session.
+public class LoadClient {
+    private final SocketAddress address;
+    private final String inputFilePath;
+    private int[] sessionCounts = {1, 100, 10_000};
+    private long requests = 100_000; // Requests per session count
+
+    private byte[][] lines; // Lines after the setup part, terminator included
+    private int nextLine; // Next line to send, shared by every session
+    private long driveNanos; // Time the last drive took from its first request, connecting excluded
+
+    LoadClient(SocketAddress address, String inputFilePath) {
+        this.address = address;
+        this.inputFilePath = inputFilePath;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LoadClient <address> <input_file> [--sessions=N,N,...] [--requests=N]");
+            System.exit(1);
+        }
+        LoadClient client = new LoadClient(Server.parseAddress(args[0]), args[1]);
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--sessions=")) {
+                client.sessionCounts = Arrays.stream(args[i].substring("--sessions=".length()).split(","))
+                        .mapToInt(Integer::parseInt).toArray();
+            } else if (args[i].startsWith("--requests=")) {
+                client.requests = Long.parseLong(args[i].substring("--requests=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        client.run(System.out);
+    }
+
+    void run(PrintStream report) throws IOException {
+        List<String> all = Files.readAllLines(Paths.get(inputFilePath), StandardCharsets.UTF_8);
+        int setup = 0;
+        while (setup < all.size() && isSetup(all.get(setup))) {
+            setup++;
+        }
+        if (setup == all.size()) {
+            throw new IllegalArgumentException("No commands after the setup part of " + inputFilePath);
+        }
+        long setupStart = System.nanoTime();
+        sendSetup(all.subList(0, setup));
+        report.printf("Setup: %d commands in %.0f ms%n", setup, (System.nanoTime() - setupStart) / 1e6);
+
+        lines = new byte[all.size() - setup][];
+        for (int i = setup; i < all.size(); i++) {
+            lines[i - setup] = (all.get(i) + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        report.printf("%10s %14s %10s %10s %10s %10s %10s%n",
+                "Sessions", "Requests/s", "p50 (us)", "p90", "p99", "p99.9", "max");
+        for (int sessions : sessionCounts) {
+            long[] latencies = new long[(int) requests];
+            int count = drive(sessions, latencies);
+            Arrays.sort(latencies, 0, count);
+            report.printf("%10d %14.0f %10.2f %10.2f %10.2f %10.2f %10.2f%n", sessions, count * 1e9 / driveNanos,
+                    percentile(latencies, count, 0.50), percentile(latencies, count, 0.90),
+                    percentile(latencies, count, 0.99), percentile(latencies, count, 0.999),
+                    latencies[count - 1] / 1000.0);
+        }
+    }
+
+    private static boolean isSetup(String line) {
+        return line.startsWith("create_user ") || line.startsWith("follow_user ") || line.startsWith("create_post ");
+    }
+
+    // Pipeline the setup lines over one session, reading answers on another thread so neither side blocks
+    private void sendSetup(List<String> setup) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            long[] answered = new long[1];
+            IOException[] failure = new IOException[1];
+            Thread reader = new Thread(() -> {
+                Session session = new Session(channel);
+                ByteBuffer in = ByteBuffer.allocate(1 << 16);
+                try {
+                    while (answered[0] < setup.size()) {
+                        in.clear();
+                        if (channel.read(in) < 0) {
+                            throw new IOException("Server closed the connection during setup");
+                        }
+                        answered[0] += session.answers(in.flip());
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }, "setup-reader");
+            reader.start();
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            for (String line : setup) {
+                byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                if (out.remaining() < bytes.length) {
+                    write(channel, out);
+                    if (out.capacity() < bytes.length) {
+                        out = ByteBuffer.allocate(bytes.length);
+                    }
+                }
+                out.put(bytes);
+            }
+            write(channel, out);
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during setup", e);
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    // Run requests over the given number of sessions, returns how many latencies were recorded
+    private int drive(int sessions, long[] latencies) throws IOException {
+        List<Session> open = new ArrayList<>(sessions);
+        int count = 0;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < sessions; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.configureBlocking(false);
+                Session session = new Session(channel);
+                channel.register(selector, SelectionKey.OP_READ, session);
+                open.add(session);
+            }
+            long startTime = System.nanoTime();
+            long sent = 0;
+            for (Session session : open) {
+                if (sent < latencies.length) {
+                    send(session);
+                    sent++;
+                }
+            }
+            ByteBuffer in = ByteBuffer.allocate(1 << 16);
+            while (count < sent) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Session session = (Session) key.attachment();
+                    in.clear();
+                    if (session.channel.read(in) < 0) {
+                        throw new IOException("Server closed a session");
+                    }
+                    if (session.answers(in.flip()) > 0) {
+                        latencies[count++] = System.nanoTime() - session.sentAt;
+                        if (sent < latencies.length) {
+                            send(session);
+                            sent++;
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            driveNanos = System.nanoTime() - startTime;
+        } finally {
+            for (Session session : open) {
+                session.channel.close();
+            }
+        }
+        return count;
+    }
+
+    private void send(Session session) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap(lines[nextLine]);
+        nextLine = (nextLine + 1) % lines.length;
+        session.sentAt = System.nanoTime();
+        while (line.hasRemaining()) {
+            session.channel.write(line); // A line fits in the socket buffer of an idle session
+        }
+    }
+
+    // Nearest-rank percentile of the first count sorted values, in microseconds
+    private static double percentile(long[] sorted, int count, double p) {
+        int rank = (int) Math.ceil(p * count);
+        return sorted[Math.max(rank, 1) - 1] / 1000.0;
+    }
+
+    // One connection, and where its answer parsing stands
+    private static final class Session {
+        final SocketChannel channel;
+        long sentAt; // When the command in flight was sent
+        private boolean lineStart = true; // The next byte starts a line
+        private boolean dotLine; // The current line is "." so far
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // Count the answers completed in the bytes read, each ends with a line holding a single '.'
+        int answers(ByteBuffer in) {
+            int answers = 0;
+            while (in.hasRemaining()) {
+                byte b = in.get();
+                if (b == '\n') {
+                    if (dotLine) {
+                        answers++;
+                    }
+                    lineStart = true;
+                    dotLine = false;
+                } else if (b != '\r') {
+                    dotLine = lineStart && b == '.';
+                    lineStart = false;
+                }
+            }
+            return answers;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package feedmanager.bench;
+
+import feedmanager.ByteArrayOutputSink;
+import feedmanager.Manager;
+import feedmanager.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end feed commands on a Manager, next to a straightforward java.util version
+// of the same feed. One reader follows fanOut authors with postsPerUser posts each.
+// A second reader also follows one more author, whose post gets a like before every call, so
+// its feed cursor is always stale and every generate_feed merges the feed again.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerBenchmark {
+    private static final int FEED_SIZE = 10; // Posts asked for by generate_feed and scroll_through_feed
+    private static final int LIKERS = 16; // Users that only like posts
+
+    @Param({"10", "100", "1000"})
+    int fanOut;
+
+    @Param({"10", "100"})
+    int postsPerUser;
+
+    private Manager manager;
+    private int reader; // Follows every author
+    private int staleReader; // Follows every author and staleAuthor
+    private int staleLiker;
+    private int stalePost; // Of staleAuthor, liked and unliked in turn
+    private int firstAuthor;
+    private int scroller; // Fresh reader for each scroll, so its feed is never used up
+    private int scrollers;
+    private final int[] noLikes = new int[FEED_SIZE];
+    private final ByteArrayOutputSink out = new ByteArrayOutputSink(1 << 12);
+
+    // The same data in java.util collections
+    private HashMap<String, List<Post>> postsByAuthor;
+    private HashMap<String, HashSet<String>> followedByUser;
+    private HashSet<String> seenByReader;
+    private HashSet<String> seenByScroller; // Fresh for each scroll, as the scroller is
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        manager = new Manager();
+        postsByAuthor = new HashMap<>();
+        followedByUser = new HashMap<>();
+        seenByReader = new HashSet<>();
+
+        manager.createUser("reader");
+        reader = manager.userIndex("reader");
+        for (int l = 0; l < LIKERS; l++) {
+            manager.createUser("liker" + l);
+        }
+        manager.createUser("staleReader");
+        staleReader = manager.userIndex("staleReader");
+        manager.createUser("staleAuthor");
+        manager.followUser(staleReader, manager.userIndex("staleAuthor"));
+        manager.createPost(manager.userIndex("staleAuthor"), "stale-post", "content");
+        stalePost = manager.postIndex("stale-post");
+        staleLiker = manager.userIndex("liker0");
+        HashSet<String> followed = new HashSet<>();
+        followedByUser.put("reader", followed);
+        for (int a = 0; a < fanOut; a++) {
+            String authorId = "author" + a;
+            manager.createUser(authorId);
+            int author = manager.userIndex(authorId);
+            if (a == 0) {
+                firstAuthor = author;
+            }
+            manager.followUser(reader, author);
+            manager.followUser(staleReader, author);
+            followed.add(authorId);
+            List<Post> authored = new ArrayList<>();
+            for (int p = 0; p < postsPerUser; p++) {
+                String postId = authorId + "-post" + p;
+                manager.createPost(author, postId, "content");
+                int post = manager.postIndex(postId);
+                Post copy = new Post(authorId, author, postId, post, 0); // Content is never read
+                int likes = random.nextInt(LIKERS);
+                for (int l = 0; l < likes; l++) {
+                    int liker = manager.userIndex("liker" + l);
+                    manager.toggleLike(liker, post, out);
+                    out.reset();
+                    copy.whoLiked.add(liker);
+                }
+                authored.add(copy);
+            }
+            postsByAuthor.put(authorId, authored);
+        }
+    }
+
+    // Each scroll gets a reader that has seen nothing yet, and staleReader's cursor goes stale
+    @Setup(Level.Invocation)
+    public void newScroller() {
+        manager.toggleLike(staleLiker, stalePost, out);
+        out.reset();
+        if (scrollers > 0) {
+            // The previous scroller stops following, so followers sets do not keep growing
+            for (int a = 0; a < fanOut; a++) {
+                manager.unfollowUser(scroller, firstAuthor + a);
+            }
+        }
+        String id = "scroller" + scrollers++;
+        manager.createUser(id);
+        scroller = manager.userIndex(id);
+        for (int a = 0; a < fanOut; a++) {
+            manager.followUser(scroller, firstAuthor + a);
+        }
+        seenByScroller = new HashSet<>();
+    }
+
+    @Benchmark
+    public int generateFeed() {
+        out.reset();
+        manager.generateFeed(reader, FEED_SIZE, out);
+        return out.length();
+    }
+
+    // Merges the feed every time, where generateFeed is served from the reader's cursor
+    @Benchmark
+    public int generateFeedStale() {
+        out.reset();
+        manager.generateFeed(staleReader, FEED_SIZE, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public int generateFeedJdk() {
+        out.reset();
+        Post[] feed = rankFeedJdk(seenByReader);
+        out.append("Feed for reader:");
+        for (Post post : feed) {
+            out.append('\n').append(post.postId).append(", Likes: ").append(post.whoLiked.size());
+        }
+        return out.length();
+    }
+
+    @Benchmark
+    public int sortPosts() {
+        out.reset();
+        manager.sortPosts(firstAuthor, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public int sortPostsJdk() {
+        out.reset();
+        List<Post> sorted = new ArrayList<>(postsByAuthor.get("author0"));
+        sorted.sort((p1, p2) -> HeapBenchmark.comparePosts(p2, p1)); // Most liked first
+        out.append("Sorting author0's posts:");
+        for (Post post : sorted) {
+            out.append('\n').append(post.postId).append(", Likes: ").append(post.whoLiked.size());
+        }
+        return out.length();
+    }
+
+    @Benchmark
+    public int scrollThroughFeed() {
+        out.reset();
+        manager.scrollThroughFeed(scroller, FEED_SIZE, noLikes, out);
+        return out.length();
+    }
+
+    @Benchmark
+    public int scrollThroughFeedJdk() {
+        out.reset();
+        Post[] feed = rankFeedJdk(seenByScroller);
+        out.append("scroller is scrolling through feed:");
+        for (Post post : feed) {
+            seenByScroller.add(post.postId); // Scrolled past, so the next feed leaves it out
+            out.append("\nscroller saw ").append(post.postId).append(" while scrolling.");
+        }
+        if (feed.length < FEED_SIZE) {
+            out.append("\nNo more posts in feed.");
+        }
+        return out.length();
+    }
+
+    // The FEED_SIZE best posts of every author, skipping seen ones, most liked first
+    private Post[] rankFeedJdk(HashSet<String> seen) {
+        PriorityQueue<Post> candidates = new PriorityQueue<>(HeapBenchmark::comparePosts);
+        for (String authorId : followedByUser.get("reader")) {
+            for (Post post : postsByAuthor.get(authorId)) {
+                if (seen.contains(post.postId)) {
+                    continue;
+                }
+                // Keep the FEED_SIZE best posts, the least liked on top
+                candidates.add(post);
+                if (candidates.size() > FEED_SIZE) {
+                    candidates.poll();
+                }
+            }
+        }
+        Post[] feed = new Post[candidates.size()];
+        for (int i = feed.length - 1; i >= 0; i--) {
+            feed[i] = candidates.poll();
+        }
+        return feed;
+    }
+}
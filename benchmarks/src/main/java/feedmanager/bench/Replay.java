@@ -0,0 +1,133 @@
+package feedmanager.bench;
+
+import feedmanager.ByteArrayOutputSink;
+import feedmanager.Command;
+import feedmanager.CommandParser;
+import feedmanager.FeedMode;
+import feedmanager.Main;
+import feedmanager.Manager;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Replays a command file through Main's command loop in-process, a fresh Manager per run.
+// Warmup runs are discarded; measured runs report commands/sec and, per command type,
+// latency percentiles of executing a command and formatting its log line.
+public class Replay {
+    private static final int TYPES = Command.TRENDING + 1; // Command types, INVALID included
+
+    private final String inputFilePath;
+    private FeedMode feedMode = FeedMode.PULL;
+    private int celebrityThreshold = Manager.DEFAULT_CELEBRITY_THRESHOLD;
+    private int warmup = 3;
+    private int iterations = 5;
+
+    // Latencies of the measured runs in nanoseconds, per command type
+    private final long[][] latencies = new long[TYPES][];
+    private final int[] counts = new int[TYPES];
+
+    Replay(String inputFilePath) {
+        this.inputFilePath = inputFilePath;
+        for (int type = 0; type < TYPES; type++) {
+            latencies[type] = new long[1024];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Replay <input_file> [--warmup=N] [--iterations=N] [--feed-mode=pull|push|hybrid]"
+                    + " [--celebrity-threshold=N]");
+            System.exit(1);
+        }
+        Replay replay = new Replay(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--warmup=")) {
+                replay.warmup = Integer.parseInt(args[i].substring("--warmup=".length()));
+            } else if (args[i].startsWith("--iterations=")) {
+                replay.iterations = Integer.parseInt(args[i].substring("--iterations=".length()));
+            } else if (args[i].startsWith("--celebrity-threshold=")) {
+                replay.celebrityThreshold = Integer.parseInt(args[i].substring("--celebrity-threshold=".length()));
+            } else if (args[i].startsWith("--feed-mode=")) {
+                replay.feedMode = FeedMode.valueOf(args[i].substring("--feed-mode=".length()).toUpperCase());
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        replay.run(System.out);
+    }
+
+    void run(PrintStream report) throws IOException {
+        for (int i = 1; i <= warmup; i++) {
+            long[] result = replay(false);
+            report.printf("Warmup %d: %d commands, %.0f commands/s%n", i, result[0], perSecond(result[0], result[1]));
+        }
+        long totalCommands = 0;
+        long totalNanos = 0;
+        for (int i = 1; i <= iterations; i++) {
+            long[] result = replay(true);
+            totalCommands += result[0];
+            totalNanos += result[1];
+            report.printf("Iteration %d: %d commands, %.0f commands/s%n", i, result[0], perSecond(result[0], result[1]));
+        }
+        report.printf("Throughput: %.0f commands/s over %d iterations%n", perSecond(totalCommands, totalNanos), iterations);
+        printLatencies(report);
+    }
+
+    // Run the whole file once, returns the command count and the elapsed nanoseconds
+    private long[] replay(boolean measured) throws IOException {
+        Manager manager = new Manager(feedMode, celebrityThreshold);
+        ByteArrayOutputSink out = new ByteArrayOutputSink(1 << 16); // Reset per command, nothing is written out
+        Command command = new Command();
+        long count = 0;
+        long startTime = System.nanoTime();
+        try (CommandParser parser = new CommandParser(inputFilePath)) {
+            while (parser.next(command)) {
+                long commandStart = System.nanoTime();
+                Main.execute(manager, command, out);
+                out.newLine();
+                long elapsed = System.nanoTime() - commandStart;
+                out.reset();
+                if (measured) {
+                    record(command.getType(), elapsed);
+                }
+                count++;
+            }
+        }
+        return new long[] {count, System.nanoTime() - startTime};
+    }
+
+    private void record(int type, long nanos) {
+        if (counts[type] == latencies[type].length) {
+            latencies[type] = Arrays.copyOf(latencies[type], counts[type] * 2);
+        }
+        latencies[type][counts[type]++] = nanos;
+    }
+
+    private void printLatencies(PrintStream report) {
+        report.printf("%-24s %10s %10s %10s %10s %10s %10s%n",
+                "Latency (us)", "count", "p50", "p90", "p99", "p99.9", "max");
+        for (int type = 0; type < TYPES; type++) {
+            int count = counts[type];
+            if (count == 0) {
+                continue;
+            }
+            long[] sorted = latencies[type];
+            Arrays.sort(sorted, 0, count);
+            report.printf("%-24s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", Command.nameOf(type), count,
+                    percentile(sorted, count, 0.50), percentile(sorted, count, 0.90),
+                    percentile(sorted, count, 0.99), percentile(sorted, count, 0.999),
+                    sorted[count - 1] / 1000.0);
+        }
+    }
+
+    // Nearest-rank percentile of the first count sorted values, in microseconds
+    private static double percentile(long[] sorted, int count, double p) {
+        int rank = (int) Math.ceil(p * count);
+        return sorted[Math.max(rank, 1) - 1] / 1000.0;
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return count * 1e9 / nanos;
+    }
+}
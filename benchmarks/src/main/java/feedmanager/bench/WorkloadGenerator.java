@@ -0,0 +1,246 @@
+package feedmanager.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+// Writes a synthetic command file in Main's input format.
+// Users are created first, then a follow graph whose follower counts follow a power law,
+// with a few celebrities followed by a large share of everyone. The rest is a mix of
+// commands drawn by weight, reads (generate_feed, scroll_through_feed) included.
+public class WorkloadGenerator {
+    // Command keywords in the order of the weights below
+    private static final String[] MIX_NAMES = {
+            "create_post", "follow_user", "unfollow_user", "toggle_like", "see_post",
+            "see_all_posts_from_user", "generate_feed", "scroll_through_feed", "sort_posts", "trending"
+    };
+    private static final int CREATE_POST = 0;
+    private static final int FOLLOW_USER = 1;
+    private static final int UNFOLLOW_USER = 2;
+    private static final int TOGGLE_LIKE = 3;
+    private static final int SEE_POST = 4;
+    private static final int SEE_ALL_POSTS = 5;
+    private static final int GENERATE_FEED = 6;
+    private static final int SCROLL_THROUGH_FEED = 7;
+    private static final int SORT_POSTS = 8;
+    private static final int TRENDING = 9;
+
+    private int users = 10_000;
+    private int posts = 20_000; // Posts created before the mixed phase
+    private int follows = 20; // Average follows per user
+    private double exponent = 1.1; // Zipf exponent of follower counts and posting activity
+    private int celebrities = 10;
+    private double celebrityReach = 0.3; // Share of all users that follow each celebrity
+    private long commands = 200_000; // Commands in the mixed phase
+    private int feedSize = 10; // num of generate_feed and scroll_through_feed
+    private double scrollLikeRatio = 0.2; // Chance of each like flag in a scroll being 1
+    private int scrollPages = 1; // Scrolls in a row by the same user, like paging down a feed
+    private long seed = 42;
+    private final double[] weights = {5, 5, 1, 25, 15, 2, 20, 15, 5, 2}; // Indexed like MIX_NAMES
+
+    private Random random;
+    private ZipfSampler popularity; // Rank 0 is the most followed and most active user
+    private int postCount;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: WorkloadGenerator <output_file> [--users=N] [--posts=N] [--follows=N]"
+                    + " [--exponent=X] [--celebrities=N] [--celebrity-reach=X] [--commands=N] [--feed-size=N]"
+                    + " [--scroll-like-ratio=X] [--scroll-pages=N] [--seed=N] [--mix=name:weight,...]");
+            System.exit(1);
+        }
+        WorkloadGenerator generator = new WorkloadGenerator();
+        for (int i = 1; i < args.length; i++) {
+            generator.parseOption(args[i]);
+        }
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8), 1 << 16)) {
+            generator.generate(out);
+        }
+    }
+
+    private void parseOption(String arg) {
+        int eq = arg.indexOf('=');
+        if (!arg.startsWith("--") || eq < 0) {
+            throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        String value = arg.substring(eq + 1);
+        switch (arg.substring(2, eq)) {
+            case "users": users = Integer.parseInt(value); break;
+            case "posts": posts = Integer.parseInt(value); break;
+            case "follows": follows = Integer.parseInt(value); break;
+            case "exponent": exponent = Double.parseDouble(value); break;
+            case "celebrities": celebrities = Integer.parseInt(value); break;
+            case "celebrity-reach": celebrityReach = Double.parseDouble(value); break;
+            case "commands": commands = Long.parseLong(value); break;
+            case "feed-size": feedSize = Integer.parseInt(value); break;
+            case "scroll-like-ratio": scrollLikeRatio = Double.parseDouble(value); break;
+            case "scroll-pages": scrollPages = Integer.parseInt(value); break;
+            case "seed": seed = Long.parseLong(value); break;
+            case "mix": parseMix(value); break;
+            default: throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+    }
+
+    // Weights not named keep their defaults, e.g. --mix=generate_feed:50,trending:0
+    private void parseMix(String mix) {
+        for (String entry : mix.split(",")) {
+            int colon = entry.indexOf(':');
+            int type = colon < 0 ? -1 : Arrays.asList(MIX_NAMES).indexOf(entry.substring(0, colon));
+            if (type < 0) {
+                throw new IllegalArgumentException("Bad mix entry: " + entry);
+            }
+            weights[type] = Double.parseDouble(entry.substring(colon + 1));
+        }
+    }
+
+    void generate(Writer out) throws IOException {
+        if (users < 2 || celebrities > users) {
+            throw new IllegalArgumentException("Need at least 2 users and no more celebrities than users");
+        }
+        random = new Random(seed);
+        popularity = new ZipfSampler(users, exponent);
+
+        // Users, in shuffled order so popularity is not tied to creation order
+        int[] order = new int[users];
+        for (int i = 0; i < users; i++) {
+            order[i] = i;
+        }
+        for (int i = users - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        for (int user : order) {
+            out.write("create_user u" + user + "\n");
+        }
+
+        // Follow graph: random followers, Zipf distributed followees
+        for (long i = (long) users * follows; i > 0; i--) {
+            writeFollow(out, "follow_user");
+        }
+        for (int celebrity = 0; celebrity < celebrities; celebrity++) {
+            for (int user = 0; user < users; user++) {
+                if (user != celebrity && random.nextDouble() < celebrityReach) {
+                    out.write("follow_user u" + user + " u" + celebrity + "\n");
+                }
+            }
+        }
+
+        // Initial posts, active users post more
+        for (int i = 0; i < posts; i++) {
+            writeCreatePost(out);
+        }
+
+        // Mixed phase
+        double[] cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The command mix has no weight");
+        }
+        for (long i = 0; i < commands; i++) {
+            double r = random.nextDouble() * total;
+            int type = 0;
+            while (cumulative[type] <= r) {
+                type++;
+            }
+            writeCommand(out, type);
+        }
+    }
+
+    private void writeCommand(Writer out, int type) throws IOException {
+        switch (type) {
+            case CREATE_POST:
+                writeCreatePost(out);
+                break;
+            case FOLLOW_USER:
+            case UNFOLLOW_USER:
+                writeFollow(out, MIX_NAMES[type]);
+                break;
+            case TOGGLE_LIKE:
+            case SEE_POST:
+                out.write(MIX_NAMES[type] + " u" + randomUser() + " p" + randomPost() + "\n");
+                break;
+            case SEE_ALL_POSTS:
+                out.write("see_all_posts_from_user u" + randomUser() + " u" + popularity.next(random) + "\n");
+                break;
+            case GENERATE_FEED:
+                out.write("generate_feed u" + randomUser() + " " + feedSize + "\n");
+                break;
+            case SCROLL_THROUGH_FEED: {
+                int user = randomUser();
+                for (int page = 0; page < scrollPages; page++) {
+                    StringBuilder line = new StringBuilder("scroll_through_feed u").append(user)
+                            .append(' ').append(feedSize);
+                    for (int i = 0; i < feedSize; i++) {
+                        line.append(random.nextDouble() < scrollLikeRatio ? " 1" : " 0");
+                    }
+                    out.write(line.append('\n').toString());
+                }
+                break;
+            }
+            case SORT_POSTS:
+                out.write("sort_posts u" + popularity.next(random) + "\n");
+                break;
+            case TRENDING:
+            default:
+                out.write("trending " + feedSize + "\n");
+        }
+    }
+
+    private void writeFollow(Writer out, String keyword) throws IOException {
+        int follower = randomUser();
+        int followee = popularity.next(random);
+        if (follower == followee) {
+            followee = (followee + 1) % users;
+        }
+        out.write(keyword + " u" + follower + " u" + followee + "\n");
+    }
+
+    private void writeCreatePost(Writer out) throws IOException {
+        out.write("create_post u" + popularity.next(random) + " p" + postCount + " content" + postCount + "\n");
+        postCount++;
+    }
+
+    private int randomUser() {
+        return random.nextInt(users);
+    }
+
+    // Recent posts are liked and seen more often than old ones
+    private int randomPost() {
+        if (postCount == 0) {
+            return 0; // Fails in the manager like any unknown post
+        }
+        int age = (int) Math.min(postCount - 1, (long) (-Math.log(1 - random.nextDouble()) * postCount / 4));
+        return postCount - 1 - age;
+    }
+
+    // Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent
+    static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+        }
+
+        int next(Random random) {
+            double r = random.nextDouble() * cumulative[cumulative.length - 1];
+            int rank = Arrays.binarySearch(cumulative, r);
+            return Math.min(rank >= 0 ? rank + 1 : -rank - 1, cumulative.length - 1);
+        }
+    }
+}